@@ -0,0 +1,72 @@
+package eu.okaeri.injector.benchmark;
+
+import eu.okaeri.injector.InstanceAllocator;
+import eu.okaeri.injector.benchmark.element.FieldComponent;
+import eu.okaeri.injector.benchmark.element.Service;
+import org.openjdk.jmh.annotations.*;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Allocation of classes without an {@code @Inject} constructor: built-in allocators
+ * compared with the reflective calls they replace.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public abstract class AllocationBenchmark {
+
+    private final InstanceAllocator constructor = InstanceAllocator.constructor();
+    private final InstanceAllocator unsafe = InstanceAllocator.unsafe();
+
+    @Benchmark
+    @SuppressWarnings("deprecation")
+    public Object reflectiveConstructor() throws ReflectiveOperationException {
+        return FieldComponent.class.newInstance();
+    }
+
+    private final InstanceAllocator.Instantiator preparedConstructor = this.constructor.prepare(FieldComponent.class);
+
+    @Benchmark
+    public Object constructor() throws Throwable {
+        return this.constructor.prepare(FieldComponent.class).newInstance();
+    }
+
+    @Benchmark
+    public Object preparedConstructor() throws Throwable {
+        return this.preparedConstructor.newInstance();
+    }
+
+    @Benchmark
+    @SuppressWarnings("deprecation")
+    public Object reflectiveUnsafe() throws ReflectiveOperationException {
+        try {
+            return Service.class.newInstance();
+        } catch (InstantiationException ignored) {
+            // no default constructor, falls back to unsafe
+        }
+        Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+        Field theUnsafe = unsafeClass.getDeclaredField("theUnsafe");
+        theUnsafe.setAccessible(true);
+        Method allocateInstance = unsafeClass.getDeclaredMethod("allocateInstance", Class.class);
+        return allocateInstance.invoke(theUnsafe.get(null), Service.class);
+    }
+
+    @Benchmark
+    public Object unsafe() throws Throwable {
+        return this.unsafe.prepare(Service.class).newInstance();
+    }
+
+    @Threads(1)
+    public static class SingleThreaded extends AllocationBenchmark {
+    }
+
+    @Threads(4)
+    public static class MultiThreaded extends AllocationBenchmark {
+    }
+}
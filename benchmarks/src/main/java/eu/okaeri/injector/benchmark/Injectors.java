@@ -0,0 +1,25 @@
+package eu.okaeri.injector.benchmark;
+
+import eu.okaeri.injector.OkaeriInjector;
+
+final class Injectors {
+
+    private Injectors() {
+    }
+
+    /**
+     * @param mode {@code reflection}, {@code compiled} or {@code generated}
+     */
+    static OkaeriInjector create(String mode) {
+        switch (mode) {
+            case "reflection":
+                return OkaeriInjector.create().setGenerated(false);
+            case "compiled":
+                return OkaeriInjector.create().setGenerated(false).setCompiled(true);
+            case "generated":
+                return OkaeriInjector.create().setGenerated(true);
+            default:
+                throw new IllegalArgumentException("Unknown mode: " + mode);
+        }
+    }
+}
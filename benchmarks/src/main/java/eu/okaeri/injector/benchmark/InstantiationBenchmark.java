@@ -0,0 +1,74 @@
+package eu.okaeri.injector.benchmark;
+
+import eu.okaeri.injector.OkaeriInjector;
+import eu.okaeri.injector.benchmark.element.*;
+import eu.okaeri.injector.metrics.FlightRecorderEvents;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Instance creation and injection through reflection, compiled invokers and generated injectors,
+ * optionally with the flight recorder listener set (without a running recording).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public abstract class InstantiationBenchmark {
+
+    @Param({"reflection", "compiled", "generated"})
+    public String mode;
+
+    @Param({"none", "jfr"})
+    public String listener;
+
+    private OkaeriInjector injector;
+    private FieldComponent fieldComponent;
+    private PostConstructComponent postConstructComponent;
+
+    @Setup
+    public void setup() {
+
+        this.injector = Injectors.create(this.mode);
+        if ("jfr".equals(this.listener)) {
+            this.injector.setListener(FlightRecorderEvents.listener().orElseThrow(IllegalStateException::new));
+        }
+        this.injector.registerInjectable(new Service(1));
+        this.injector.registerInjectable(new Config("main"));
+        this.injector.registerInjectable("limit", 10);
+
+        this.fieldComponent = new FieldComponent();
+        this.postConstructComponent = new PostConstructComponent();
+    }
+
+    @Benchmark
+    public FieldComponent createFieldInjected() {
+        return this.injector.createInstance(FieldComponent.class);
+    }
+
+    @Benchmark
+    public ConstructorComponent createConstructorInjected() {
+        return this.injector.createInstance(ConstructorComponent.class);
+    }
+
+    @Benchmark
+    public FieldComponent injectFields() {
+        return this.injector.injectFields(this.fieldComponent);
+    }
+
+    @Benchmark
+    public PostConstructComponent invokePostConstructs() {
+        return this.injector.invokePostConstructs(this.postConstructComponent);
+    }
+
+    @Threads(1)
+    public static class SingleThreaded extends InstantiationBenchmark {
+    }
+
+    @Threads(4)
+    public static class MultiThreaded extends InstantiationBenchmark {
+    }
+}
@@ -0,0 +1,64 @@
+package eu.okaeri.injector.benchmark;
+
+import eu.okaeri.injector.OkaeriInjector;
+import eu.okaeri.injector.PreparedMethod;
+import eu.okaeri.injector.benchmark.element.CommandHandler;
+import eu.okaeri.injector.benchmark.element.Config;
+import eu.okaeri.injector.benchmark.element.Service;
+import org.openjdk.jmh.annotations.*;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Repeated invocation of a method with injected parameters.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public abstract class InvocationBenchmark {
+
+    private OkaeriInjector injector;
+    private CommandHandler handler;
+    private Method method;
+    private PreparedMethod prepared;
+
+    @Setup
+    public void setup() throws NoSuchMethodException {
+
+        this.injector = OkaeriInjector.create();
+        this.injector.registerInjectable(new Service(1));
+        this.injector.registerInjectable(new Config("main"));
+        this.injector.registerInjectable("limit", 10);
+
+        this.handler = new CommandHandler();
+        this.method = CommandHandler.class.getMethod("handle", Service.class, Config.class, Integer.class);
+        this.prepared = this.injector.prepare(this.method);
+    }
+
+    @Benchmark
+    public int direct() {
+        return this.handler.handle(this.injector.getOrThrow("", Service.class), this.injector.getOrThrow("", Config.class), this.injector.getOrThrow("limit", Integer.class));
+    }
+
+    @Benchmark
+    public Object invoke() {
+        return this.injector.invoke(this.handler, this.method);
+    }
+
+    @Benchmark
+    public Object prepared() {
+        return this.prepared.invoke(this.handler);
+    }
+
+    @Threads(1)
+    public static class SingleThreaded extends InvocationBenchmark {
+    }
+
+    @Threads(4)
+    public static class MultiThreaded extends InvocationBenchmark {
+    }
+}
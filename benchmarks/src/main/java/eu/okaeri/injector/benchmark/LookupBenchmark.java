@@ -0,0 +1,82 @@
+package eu.okaeri.injector.benchmark;
+
+import eu.okaeri.injector.Injectable;
+import eu.okaeri.injector.Injector;
+import eu.okaeri.injector.OkaeriInjector;
+import eu.okaeri.injector.benchmark.element.Config;
+import eu.okaeri.injector.benchmark.element.Service;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Lookups in a registry of {@code size} injectables sharing the same type.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public abstract class LookupBenchmark {
+
+    @Param({"10", "1000", "10000"})
+    public int size;
+
+    /**
+     * {@code indexed} for a mutable injector, {@code frozen} for {@link OkaeriInjector#freeze()}.
+     */
+    @Param({"indexed", "frozen"})
+    public String registry;
+
+    private Injector injector;
+    private String hitName;
+
+    @Setup
+    public void setup() {
+
+        OkaeriInjector injector = OkaeriInjector.create();
+        for (int i = 0; i < this.size; i++) {
+            injector.registerInjectable("service" + i, new Service(i));
+        }
+        injector.registerInjectable(new Config("main"));
+
+        this.injector = "frozen".equals(this.registry) ? injector.freeze() : injector;
+        this.hitName = "service" + (this.size / 2);
+    }
+
+    @Benchmark
+    public Optional<? extends Injectable<Service>> getNamed() {
+        return this.injector.getInjectable(this.hitName, Service.class);
+    }
+
+    @Benchmark
+    public Optional<? extends Injectable<Config>> getFallback() {
+        return this.injector.getInjectable("config", Config.class);
+    }
+
+    @Benchmark
+    public Optional<? extends Injectable<Thread>> getMiss() {
+        return this.injector.getInjectable("thread", Thread.class);
+    }
+
+    @Benchmark
+    public List<Injectable<Config>> allOf() {
+        return this.injector.allOf(Config.class);
+    }
+
+    @Benchmark
+    public long streamOf() {
+        return this.injector.streamOf(Service.class).mapToLong(Service::getId).sum();
+    }
+
+    @Threads(1)
+    public static class SingleThreaded extends LookupBenchmark {
+    }
+
+    @Threads(4)
+    public static class MultiThreaded extends LookupBenchmark {
+    }
+}
@@ -0,0 +1,96 @@
+package eu.okaeri.injector.benchmark;
+
+import eu.okaeri.injector.InjectableBatch;
+import eu.okaeri.injector.OkaeriInjector;
+import eu.okaeri.injector.benchmark.element.Service;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Registration of {@code size} injectables into a new injector, and exclusive
+ * registration into a shared injector already holding {@code size} injectables.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public abstract class RegistrationBenchmark {
+
+    @Param({"100", "1000", "10000"})
+    public int size;
+
+    private Service[] services;
+    private String[] names;
+    private OkaeriInjector shared;
+    private final AtomicInteger counter = new AtomicInteger();
+
+    @Setup
+    public void setup() {
+
+        this.services = new Service[this.size];
+        this.names = new String[this.size];
+        this.shared = OkaeriInjector.create();
+
+        for (int i = 0; i < this.size; i++) {
+            this.services[i] = new Service(i);
+            this.names[i] = "service" + i;
+            this.shared.registerInjectable(this.names[i], this.services[i]);
+        }
+    }
+
+    /**
+     * Registers {@code size} injectables one by one.
+     */
+    @Benchmark
+    public OkaeriInjector register() {
+        OkaeriInjector injector = OkaeriInjector.create();
+        for (int i = 0; i < this.size; i++) {
+            injector.registerInjectable(this.names[i], this.services[i]);
+        }
+        return injector;
+    }
+
+    /**
+     * Registers {@code size} injectables as a single batch.
+     */
+    @Benchmark
+    public OkaeriInjector registerAll() {
+        InjectableBatch batch = InjectableBatch.create();
+        for (int i = 0; i < this.size; i++) {
+            batch.register(this.names[i], this.services[i]);
+        }
+        OkaeriInjector injector = OkaeriInjector.create();
+        injector.registerAll(batch);
+        return injector;
+    }
+
+    /**
+     * Replaces one of the injectables, the registry keeps its size.
+     */
+    @Benchmark
+    public OkaeriInjector registerExclusive() {
+        int index = Math.floorMod(this.counter.getAndIncrement(), this.size);
+        return (OkaeriInjector) this.shared.registerExclusive(this.names[index], this.services[index]);
+    }
+
+    /**
+     * Replaces one of the injectables using a single-entry batch, the registry keeps its size.
+     */
+    @Benchmark
+    public OkaeriInjector registerAllExclusive() {
+        int index = Math.floorMod(this.counter.getAndIncrement(), this.size);
+        return (OkaeriInjector) this.shared.registerAll(InjectableBatch.create().registerExclusive(this.names[index], this.services[index]));
+    }
+
+    @Threads(1)
+    public static class SingleThreaded extends RegistrationBenchmark {
+    }
+
+    @Threads(4)
+    public static class MultiThreaded extends RegistrationBenchmark {
+    }
+}
@@ -0,0 +1,10 @@
+package eu.okaeri.injector.benchmark.element;
+
+import eu.okaeri.injector.annotation.Inject;
+
+public class CommandHandler {
+
+    public int handle(Service service, Config config, @Inject("limit") Integer limit) {
+        return service.getId() + config.getName().length() + limit;
+    }
+}
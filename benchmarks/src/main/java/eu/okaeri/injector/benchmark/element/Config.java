@@ -0,0 +1,8 @@
+package eu.okaeri.injector.benchmark.element;
+
+import lombok.Data;
+
+@Data
+public class Config {
+    private final String name;
+}
@@ -0,0 +1,19 @@
+package eu.okaeri.injector.benchmark.element;
+
+import eu.okaeri.injector.annotation.Inject;
+import lombok.Getter;
+
+@Getter
+public class ConstructorComponent {
+
+    private final Service service;
+    private final Config config;
+    private final Integer limit;
+
+    @Inject
+    public ConstructorComponent(Service service, Config config, @Inject("limit") Integer limit) {
+        this.service = service;
+        this.config = config;
+        this.limit = limit;
+    }
+}
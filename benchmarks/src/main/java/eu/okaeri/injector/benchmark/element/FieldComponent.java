@@ -0,0 +1,12 @@
+package eu.okaeri.injector.benchmark.element;
+
+import eu.okaeri.injector.annotation.Inject;
+import lombok.Getter;
+
+@Getter
+public class FieldComponent {
+
+    @Inject private Service service;
+    @Inject private Config config;
+    @Inject("limit") private Integer limit;
+}
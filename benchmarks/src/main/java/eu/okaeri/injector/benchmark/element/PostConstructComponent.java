@@ -0,0 +1,20 @@
+package eu.okaeri.injector.benchmark.element;
+
+import eu.okaeri.injector.annotation.PostConstruct;
+import lombok.Getter;
+
+@Getter
+public class PostConstructComponent {
+
+    private int calls;
+
+    @PostConstruct(order = 1)
+    public void setup() {
+        this.calls++;
+    }
+
+    @PostConstruct(order = 2)
+    public void configure(Service service, Config config) {
+        this.calls += service.getId() + config.getName().length();
+    }
+}
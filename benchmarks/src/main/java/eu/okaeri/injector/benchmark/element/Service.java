@@ -0,0 +1,8 @@
+package eu.okaeri.injector.benchmark.element;
+
+import lombok.Data;
+
+@Data
+public class Service {
+    private final int id;
+}
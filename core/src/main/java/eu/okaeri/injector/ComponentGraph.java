@@ -0,0 +1,286 @@
+package eu.okaeri.injector;
+
+import eu.okaeri.injector.annotation.Inject;
+import eu.okaeri.injector.exception.InjectorException;
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.NonNull;
+import lombok.RequiredArgsConstructor;
+
+import java.lang.reflect.Array;
+import java.lang.reflect.Method;
+import java.lang.reflect.Parameter;
+import java.util.*;
+import java.util.stream.Collectors;
+
+/**
+ * Dependency graph of components to be created by {@link OkaeriInjector#createInstances(Collection)}.
+ * <p>
+ * Components depend on each other through their {@code @Inject} fields, constructor and post construct
+ * parameters. Dependencies are provided either by other components (created components are registered
+ * as unnamed injectables of their class), values returned by their {@code @PostConstruct} methods
+ * (registered under the method name) or injectables already present in the injector.
+ * {@link Provider} and {@link Lazy} injection points are resolved later and are not part of the graph.
+ */
+@Getter
+@RequiredArgsConstructor(access = AccessLevel.PRIVATE)
+public class ComponentGraph {
+
+    private final List<Class<?>> components;
+    private final Map<Class<?>, Set<Class<?>>> dependencies;
+
+    /**
+     * Components grouped into waves: every component depends only on the components from the previous waves.
+     */
+    private final List<List<Class<?>>> waves;
+
+    /**
+     * Analyzes components without instantiating anything.
+     *
+     * @throws InjectorException if any dependency cannot be provided or the components form a cycle
+     */
+    public static ComponentGraph analyze(@NonNull Injector injector, @NonNull Collection<? extends Class<?>> classes) throws InjectorException {
+
+        List<Class<?>> components = new ArrayList<>(new LinkedHashSet<>(classes));
+        List<Producer> producers = new ArrayList<>();
+        Map<Class<?>, List<Requirement>> requirements = new HashMap<>();
+
+        for (Class<?> component : components) {
+            producers.add(new Producer(component, "", component));
+            for (Method method : InjectionPlan.of(component).getPostConstructs()) {
+                if (method.getReturnType() != void.class) {
+                    producers.add(new Producer(component, method.getName(), wrap(method.getReturnType())));
+                }
+            }
+            requirements.put(component, requirementsOf(component));
+        }
+
+        return analyze(injector, components, producers, requirements);
+    }
+
+    /**
+     * Analyzes components of the build-time index using their listed dependencies,
+     * without discovering the injection points reflectively.
+     *
+     * @throws InjectorException if any dependency cannot be loaded or provided or the components form a cycle
+     */
+    public static ComponentGraph analyze(@NonNull Injector injector, @NonNull ComponentIndex index) throws InjectorException {
+
+        List<Class<?>> components = new ArrayList<>(index.getComponents());
+        List<Producer> producers = new ArrayList<>();
+        Map<Class<?>, List<Requirement>> requirements = new HashMap<>();
+
+        for (Class<?> component : components) {
+            producers.add(new Producer(component, "", component));
+            List<Requirement> componentRequirements = new ArrayList<>();
+            for (String dependency : index.getDependencies().getOrDefault(component, Collections.emptyList())) {
+                // encoded names contain neither the separators nor the producer prefix
+                int separator = Math.max(dependency.lastIndexOf('='), dependency.lastIndexOf('~'));
+                Class<?> type = load(component, dependency.substring(separator + 1));
+                if (dependency.startsWith("+")) {
+                    producers.add(new Producer(component, ComponentIndex.decode(dependency.substring(1, separator)), wrap(type)));
+                    continue;
+                }
+                String name = (separator == -1) ? "" : ComponentIndex.decode(dependency.substring(0, separator));
+                componentRequirements.add(new Requirement(name, type, (separator == -1) || (dependency.charAt(separator) == '~')));
+            }
+            requirements.put(component, componentRequirements);
+        }
+
+        return analyze(injector, components, producers, requirements);
+    }
+
+    private static ComponentGraph analyze(Injector injector, List<Class<?>> components, List<Producer> producers, Map<Class<?>, List<Requirement>> requirements) {
+
+        Map<Class<?>, Set<Class<?>>> dependencies = new LinkedHashMap<>();
+        List<String> missing = new ArrayList<>();
+
+        for (Class<?> component : components) {
+            Set<Class<?>> componentDependencies = new LinkedHashSet<>();
+            for (Requirement requirement : requirements.get(component)) {
+                Set<Class<?>> providers = resolve(injector, producers, requirement);
+                if (providers == null) {
+                    missing.add(requirement + " in " + component);
+                    continue;
+                }
+                componentDependencies.addAll(providers);
+            }
+            componentDependencies.remove(component);
+            dependencies.put(component, Collections.unmodifiableSet(componentDependencies));
+        }
+
+        if (!missing.isEmpty()) {
+            throw new InjectorException("Cannot resolve component dependencies: " + String.join(", ", missing));
+        }
+
+        return new ComponentGraph(Collections.unmodifiableList(components), Collections.unmodifiableMap(dependencies), sort(components, dependencies));
+    }
+
+    /**
+     * @return components providing the requirement, empty if provided by the injector or {@code null} if missing
+     */
+    private static Set<Class<?>> resolve(Injector injector, List<Producer> producers, Requirement requirement) {
+
+        if (!requirement.name.isEmpty()) {
+            Set<Class<?>> named = producers.stream()
+                .filter(producer -> requirement.name.equals(producer.name) && requirement.type.isAssignableFrom(producer.type))
+                .map(producer -> producer.component)
+                .collect(Collectors.toCollection(LinkedHashSet::new));
+            if (!named.isEmpty()) {
+                return named;
+            }
+            if (injector.getInjectableExact(requirement.name, requirement.type).isPresent()) {
+                return Collections.emptySet();
+            }
+            if (!requirement.fallback) {
+                return null;
+            }
+        }
+
+        Set<Class<?>> typed = producers.stream()
+            .filter(producer -> requirement.type.isAssignableFrom(producer.type))
+            .map(producer -> producer.component)
+            .collect(Collectors.toCollection(LinkedHashSet::new));
+        if (!typed.isEmpty()) {
+            return typed;
+        }
+
+        return injector.getInjectableExact("", requirement.type).isPresent() ? Collections.emptySet() : null;
+    }
+
+    private static List<List<Class<?>>> sort(List<Class<?>> components, Map<Class<?>, Set<Class<?>>> dependencies) {
+
+        Map<Class<?>, Integer> remaining = new HashMap<>();
+        Map<Class<?>, List<Class<?>>> dependents = new HashMap<>();
+        for (Class<?> component : components) {
+            remaining.put(component, dependencies.get(component).size());
+            for (Class<?> dependency : dependencies.get(component)) {
+                dependents.computeIfAbsent(dependency, key -> new ArrayList<>()).add(component);
+            }
+        }
+
+        List<List<Class<?>>> waves = new ArrayList<>();
+        List<Class<?>> wave = components.stream()
+            .filter(component -> remaining.get(component) == 0)
+            .collect(Collectors.toList());
+
+        int sorted = 0;
+        while (!wave.isEmpty()) {
+            waves.add(Collections.unmodifiableList(wave));
+            sorted += wave.size();
+            List<Class<?>> next = new ArrayList<>();
+            for (Class<?> component : wave) {
+                for (Class<?> dependent : dependents.getOrDefault(component, Collections.emptyList())) {
+                    if (remaining.merge(dependent, -1, Integer::sum) == 0) {
+                        next.add(dependent);
+                    }
+                }
+            }
+            wave = next;
+        }
+
+        if (sorted != components.size()) {
+            String cycle = components.stream()
+                .filter(component -> remaining.get(component) > 0)
+                .map(Class::getName)
+                .collect(Collectors.joining(", "));
+            throw new InjectorException("Components form a dependency cycle: " + cycle);
+        }
+
+        return Collections.unmodifiableList(waves);
+    }
+
+    private static List<Requirement> requirementsOf(Class<?> component) {
+
+        InjectionPlan plan = InjectionPlan.of(component);
+        List<Requirement> requirements = new ArrayList<>();
+
+        if (plan.getConstructor() != null) {
+            addParameters(requirements, plan.getConstructorParameters());
+        }
+
+        for (InjectionPlan.InjectionField field : plan.getFields()) {
+            if (field.getDeferral() != InjectionPlan.Deferral.NONE) {
+                continue;
+            }
+            requirements.add(new Requirement(field.getName(), field.getField().getType(), !field.isExact()));
+        }
+
+        for (Parameter[] parameters : plan.getPostConstructParameters()) {
+            addParameters(requirements, parameters);
+        }
+
+        return requirements;
+    }
+
+    private static void addParameters(List<Requirement> requirements, Parameter[] parameters) {
+        for (Parameter parameter : parameters) {
+            if (InjectionPlan.Deferral.of(parameter.getType()) != InjectionPlan.Deferral.NONE) {
+                continue;
+            }
+            Inject inject = parameter.getAnnotation(Inject.class);
+            requirements.add(new Requirement((inject == null) ? "" : inject.value(), parameter.getType(), true));
+        }
+    }
+
+    /**
+     * @param name binary name as written to the index, arrays using the {@code []} suffix
+     */
+    private static Class<?> load(Class<?> component, String name) throws InjectorException {
+
+        if (name.endsWith("[]")) {
+            return Array.newInstance(load(component, name.substring(0, name.length() - 2)), 0).getClass();
+        }
+
+        switch (name) {
+            case "int": return int.class;
+            case "long": return long.class;
+            case "boolean": return boolean.class;
+            case "double": return double.class;
+            case "float": return float.class;
+            case "short": return short.class;
+            case "byte": return byte.class;
+            case "char": return char.class;
+        }
+
+        try {
+            return Class.forName(name, false, component.getClassLoader());
+        } catch (ClassNotFoundException | LinkageError exception) {
+            throw new InjectorException("Cannot load dependency " + name + " of indexed component " + component.getName(), exception);
+        }
+    }
+
+    private static Class<?> wrap(Class<?> type) {
+        if (!type.isPrimitive()) {
+            return type;
+        }
+        if (type == int.class) return Integer.class;
+        if (type == long.class) return Long.class;
+        if (type == boolean.class) return Boolean.class;
+        if (type == double.class) return Double.class;
+        if (type == float.class) return Float.class;
+        if (type == short.class) return Short.class;
+        if (type == byte.class) return Byte.class;
+        return Character.class;
+    }
+
+    @RequiredArgsConstructor
+    private static class Producer {
+        private final Class<?> component;
+        private final String name;
+        private final Class<?> type;
+    }
+
+    @RequiredArgsConstructor
+    private static class Requirement {
+
+        private final String name;
+        private final Class<?> type;
+        private final boolean fallback;
+
+        @Override
+        public String toString() {
+            return this.type.getName() + " [" + this.name + "]";
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package eu.okaeri.injector;
+
+import eu.okaeri.injector.exception.InjectorException;
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.NonNull;
+import lombok.RequiredArgsConstructor;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.UnsupportedEncodingException;
+import java.net.URL;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/**
+ * Components listed at build time by the okaeri-injector-processor: instantiable classes declaring
+ * {@code @Inject} fields or constructors or {@code @PostConstruct} methods, along with their dependencies.
+ * <p>
+ * Indexes of all classpath entries visible to the class loader are merged,
+ * so components can be discovered without scanning the classpath.
+ *
+ * @see OkaeriInjector#createIndexedComponents(ClassLoader)
+ */
+@Getter
+@RequiredArgsConstructor(access = AccessLevel.PRIVATE)
+public class ComponentIndex {
+
+    public static final String LOCATION = "META-INF/okaeri-injector/components";
+
+    private final List<Class<?>> components;
+
+    /**
+     * Declared dependencies of the components: binary names of the erased types of the injection points,
+     * prefixed with {@code name=} when resolved only by name or {@code name~} when resolved by name falling
+     * back to the type. Values returned by the post constructs are listed as {@code +method=type}.
+     * Names are URL-encoded, deferred injection points are not listed.
+     *
+     * @see ComponentGraph#analyze(Injector, ComponentIndex)
+     */
+    private final Map<Class<?>, List<String>> dependencies;
+
+    /**
+     * @throws InjectorException if any index cannot be read or lists class that cannot be loaded
+     */
+    public static ComponentIndex load(@NonNull ClassLoader classLoader) throws InjectorException {
+
+        Map<String, List<String>> entries = new LinkedHashMap<>();
+        try {
+            Enumeration<URL> resources = classLoader.getResources(LOCATION);
+            while (resources.hasMoreElements()) {
+                read(resources.nextElement(), entries);
+            }
+        } catch (IOException exception) {
+            throw new InjectorException("Cannot read component index " + LOCATION, exception);
+        }
+
+        List<Class<?>> components = new ArrayList<>();
+        Map<Class<?>, List<String>> dependencies = new LinkedHashMap<>();
+
+        for (Map.Entry<String, List<String>> entry : entries.entrySet()) {
+            Class<?> component;
+            try {
+                component = Class.forName(entry.getKey(), false, classLoader);
+            } catch (ClassNotFoundException | LinkageError exception) {
+                throw new InjectorException("Cannot load indexed component " + entry.getKey(), exception);
+            }
+            components.add(component);
+            dependencies.put(component, entry.getValue());
+        }
+
+        return new ComponentIndex(Collections.unmodifiableList(components), Collections.unmodifiableMap(dependencies));
+    }
+
+    /**
+     * @param name name as written to the index
+     * @throws InjectorException if the name is not properly encoded
+     */
+    static String decode(String name) throws InjectorException {
+        try {
+            return URLDecoder.decode(name, "UTF-8");
+        } catch (UnsupportedEncodingException | IllegalArgumentException exception) {
+            throw new InjectorException("Malformed name in component index: " + name, exception);
+        }
+    }
+
+    private static void read(URL resource, Map<String, List<String>> entries) throws IOException {
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(resource.openStream(), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                line = line.trim();
+                if (line.isEmpty() || line.startsWith("#")) {
+                    continue;
+                }
+                String[] parts = line.split(" ");
+                entries.putIfAbsent(parts[0], Collections.unmodifiableList(Arrays.asList(Arrays.copyOfRange(parts, 1, parts.length))));
+            }
+        }
+    }
+}
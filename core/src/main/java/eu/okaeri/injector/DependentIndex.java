@@ -0,0 +1,175 @@
+package eu.okaeri.injector;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.lang.reflect.Modifier;
+import java.util.*;
+
+/**
+ * Reverse index of the field injections: which instances received which injectable through which field.
+ * <p>
+ * Instances are referenced weakly and forgotten once collected. Bindings are indexed by the injectable
+ * and by the type of the field, so the fields affected by a registry change are found without visiting
+ * unrelated instances.
+ *
+ * @see OkaeriInjector#setHotSwap(boolean)
+ */
+final class DependentIndex {
+
+    private final ReferenceQueue<Object> queue = new ReferenceQueue<>();
+    private final Map<Injectable, Set<Binding>> byInjectable = new IdentityHashMap<>();
+    private final Map<Class<?>, Set<Binding>> byType = new HashMap<>();
+
+    /**
+     * Records the injectables received by the non-deferred instance fields of the instance.
+     *
+     * @param resolved injectables used for the injection, indexed as {@link InjectionPlan#getFields()}
+     */
+    void record(Object instance, InjectionPlan plan, Injectable<?>[] resolved) {
+
+        InjectionPlan.InjectionField[] fields = plan.getFields();
+        List<Binding> bindings = new ArrayList<>();
+        for (int i = 0; i < fields.length; i++) {
+            if ((resolved[i] == null) || Modifier.isStatic(fields[i].getField().getModifiers())) {
+                continue;
+            }
+            bindings.add(new Binding(instance, this.queue, fields[i], resolved[i]));
+        }
+
+        if (bindings.isEmpty()) {
+            return;
+        }
+
+        synchronized (this) {
+            this.expunge();
+            for (Binding binding : bindings) {
+                this.add(binding);
+            }
+        }
+    }
+
+    /**
+     * Re-injects fields bound to the removed injectables and fields which the added injectables
+     * may now be resolved for. Only fields resolving to a different injectable are updated,
+     * fields which can no longer be resolved keep their value and are unbound from the removed injectable.
+     *
+     * @return number of updated fields
+     */
+    synchronized int reinject(OkaeriInjector injector, Collection<Injectable> removed, Collection<Injectable> added) {
+
+        this.expunge();
+        Set<Binding> affected = Collections.newSetFromMap(new IdentityHashMap<>());
+
+        // removed injectables are no longer referenced once their bindings are processed
+        Set<Injectable> unbound = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (Injectable injectable : removed) {
+            Set<Binding> bindings = this.byInjectable.remove(injectable);
+            if (bindings != null) {
+                affected.addAll(bindings);
+                unbound.add(injectable);
+            }
+        }
+
+        for (Injectable injectable : added) {
+            for (Class<?> type : IndexedInjectableRegistry.hierarchyOf(injectable.getType())) {
+                Set<Binding> bindings = this.byType.get(type);
+                if (bindings != null) {
+                    affected.addAll(bindings);
+                }
+            }
+        }
+
+        int updated = 0;
+        for (Binding binding : affected) {
+
+            Object instance = binding.get();
+            if (instance == null) {
+                continue;
+            }
+
+            Optional<? extends Injectable<?>> resolved = resolve(injector, binding.field);
+            if (resolved.isPresent() && (resolved.get() != binding.injectable) && inject(instance, binding.field, resolved.get())) {
+                this.rebind(binding, instance, resolved.get());
+                updated++;
+                continue;
+            }
+
+            if (unbound.contains(binding.injectable)) {
+                this.rebind(binding, instance, null);
+            }
+        }
+
+        return updated;
+    }
+
+    private static boolean inject(Object instance, InjectionPlan.InjectionField field, Injectable injectable) {
+        try {
+            field.getField().set(instance, injectable.getObject());
+            return true;
+        } catch (IllegalAccessException exception) {
+            return false;
+        }
+    }
+
+    private static Optional<? extends Injectable<?>> resolve(OkaeriInjector injector, InjectionPlan.InjectionField field) {
+        Class<?> type = field.getField().getType();
+        return field.isExact()
+            ? injector.getInjectableExact(field.getName(), type)
+            : injector.getInjectable(field.getName(), type);
+    }
+
+    /**
+     * @param injectable new injectable of the field or {@code null} if the field is no longer bound to any
+     */
+    private void rebind(Binding binding, Object instance, Injectable injectable) {
+        this.remove(binding);
+        this.add(new Binding(instance, this.queue, binding.field, injectable));
+    }
+
+    private void add(Binding binding) {
+        if (binding.injectable != null) {
+            this.byInjectable.computeIfAbsent(binding.injectable, key -> Collections.newSetFromMap(new IdentityHashMap<>())).add(binding);
+        }
+        this.byType.computeIfAbsent(binding.field.getField().getType(), key -> Collections.newSetFromMap(new IdentityHashMap<>())).add(binding);
+    }
+
+    private void remove(Binding binding) {
+        if (binding.injectable != null) {
+            removeFrom(this.byInjectable, binding.injectable, binding);
+        }
+        removeFrom(this.byType, binding.field.getField().getType(), binding);
+    }
+
+    private static <K> void removeFrom(Map<K, Set<Binding>> bindings, K key, Binding binding) {
+        Set<Binding> set = bindings.get(key);
+        if ((set != null) && set.remove(binding) && set.isEmpty()) {
+            bindings.remove(key);
+        }
+    }
+
+    /**
+     * Forgets bindings of the collected instances.
+     */
+    private void expunge() {
+        for (Reference<?> reference; (reference = this.queue.poll()) != null; ) {
+            this.remove((Binding) reference);
+        }
+    }
+
+    private static final class Binding extends WeakReference<Object> {
+
+        private final InjectionPlan.InjectionField field;
+
+        /**
+         * Injectable received by the field, {@code null} once removed without a replacement.
+         */
+        private final Injectable injectable;
+
+        private Binding(Object instance, ReferenceQueue<Object> queue, InjectionPlan.InjectionField field, Injectable injectable) {
+            super(instance, queue);
+            this.field = field;
+            this.injectable = injectable;
+        }
+    }
+}
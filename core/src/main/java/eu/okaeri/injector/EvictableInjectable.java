@@ -0,0 +1,41 @@
+package eu.okaeri.injector;
+
+/**
+ * Injectable which can be evicted from the registry, either when the registry
+ * exceeds its limit of evictable injectables or according to its own policy.
+ *
+ * @see Injectable#evictable(String, Object, Class)
+ * @see OkaeriInjector#setEvictableLimit(int)
+ */
+class EvictableInjectable<T> extends Injectable<T> {
+
+    private volatile boolean evicted;
+
+    EvictableInjectable(String name, T object, Class<T> type) {
+        super(name, object, type);
+    }
+
+    void evict() {
+        this.evicted = true;
+    }
+
+    @Override
+    public boolean isAlive() {
+        return !this.evicted;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        return this == other;
+    }
+
+    @Override
+    public int hashCode() {
+        return System.identityHashCode(this);
+    }
+
+    @Override
+    public String toString() {
+        return "Injectable(name=" + this.getName() + ", object=" + this.getObject() + ", type=" + this.getType() + ", alive=" + this.isAlive() + ")";
+    }
+}
@@ -0,0 +1,188 @@
+package eu.okaeri.injector;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.*;
+
+/**
+ * Bookkeeping of the {@link EvictableInjectable}s of a single registry.
+ * <p>
+ * Collected objects are reported by the {@link ReferenceQueue}, expirations are ordered by
+ * their deadline and the limit is enforced in the registration order, so finding injectables
+ * to remove never requires scanning the registry. All methods except {@link #isDue()} and
+ * {@link #poll()} have to be called with the registry lock held.
+ */
+final class Evictions {
+
+    private final ReferenceQueue<Object> queue = new ReferenceQueue<>();
+    private final Map<Injectable, Tracker> references = new IdentityHashMap<>();
+    private final PriorityQueue<ExpiringInjectable<?>> expiring = new PriorityQueue<>(Comparator.comparingLong(ExpiringInjectable::getDeadline));
+    private int cancelled;
+    private final Set<Injectable> tracked = Collections.newSetFromMap(new IdentityHashMap<>());
+    private final ArrayDeque<Injectable> order = new ArrayDeque<>();
+
+    private volatile boolean active;
+    private volatile long nextDeadline = Long.MAX_VALUE;
+    private int limit = Integer.MAX_VALUE;
+
+    /**
+     * Cheap check for the readers, {@code true} if there may be injectables to remove.
+     */
+    boolean isDue() {
+        if (!this.active) {
+            return false;
+        }
+        long nextDeadline = this.nextDeadline;
+        return (nextDeadline != Long.MAX_VALUE) && ((System.nanoTime() - nextDeadline) >= 0);
+    }
+
+    /**
+     * @return reference of the collected object or {@code null}, to be passed to {@link #collect(Reference)}
+     */
+    Reference<?> poll() {
+        return this.active ? this.queue.poll() : null;
+    }
+
+    void track(Injectable injectable) {
+
+        if (!(injectable instanceof EvictableInjectable)) {
+            return;
+        }
+
+        this.active = true;
+        if (!this.tracked.add(injectable)) {
+            return;
+        }
+        this.order.addLast(injectable);
+
+        if (injectable instanceof WeakInjectable) {
+            Object object = injectable.getObject();
+            if (object != null) {
+                this.references.put(injectable, new Tracker(object, this.queue, injectable));
+            }
+        } else if (injectable instanceof ExpiringInjectable) {
+            this.expiring.add((ExpiringInjectable<?>) injectable);
+            this.nextDeadline = this.expiring.peek().getDeadline();
+        }
+    }
+
+    /**
+     * Stops tracking injectables removed from the registry by other means.
+     */
+    void forget(Collection<Injectable> injectables) {
+
+        if (!this.active) {
+            return;
+        }
+
+        for (Injectable injectable : injectables) {
+            if (this.tracked.remove(injectable)) {
+                this.untrack(injectable);
+            }
+        }
+
+        this.purgeExpiring();
+        this.compactOrder();
+    }
+
+    /**
+     * Drops the tracker of the weak injectable, expiring ones are left in the queue until {@link #purgeExpiring()}.
+     */
+    private void untrack(Injectable injectable) {
+        Tracker tracker = this.references.remove(injectable);
+        if (tracker != null) {
+            // cleared references are not enqueued
+            tracker.clear();
+        } else if (injectable instanceof ExpiringInjectable) {
+            this.cancelled++;
+        }
+    }
+
+    void setLimit(int limit) {
+        this.limit = limit;
+    }
+
+    /**
+     * @param polled reference returned by {@link #poll()}, may be {@code null}
+     * @return injectables to be removed: collected, expired or exceeding the limit
+     */
+    List<Injectable> collect(Reference<?> polled) {
+
+        List<Injectable> removed = new ArrayList<>();
+        if (!this.active) {
+            return removed;
+        }
+
+        // collected
+        for (Reference<?> reference = (polled != null) ? polled : this.queue.poll(); reference != null; reference = this.queue.poll()) {
+            Injectable injectable = ((Tracker) reference).injectable;
+            if (this.tracked.remove(injectable)) {
+                this.references.remove(injectable);
+                removed.add(injectable);
+            }
+        }
+
+        // expired
+        long now = System.nanoTime();
+        while (!this.expiring.isEmpty() && ((now - this.expiring.peek().getDeadline()) >= 0)) {
+            Injectable injectable = this.expiring.poll();
+            if (this.tracked.remove(injectable)) {
+                removed.add(injectable);
+            } else {
+                this.cancelled--;
+            }
+        }
+
+        // over the limit, oldest first
+        while (this.tracked.size() > this.limit) {
+            Injectable injectable = this.order.pollFirst();
+            if (this.tracked.remove(injectable)) {
+                this.untrack(injectable);
+                ((EvictableInjectable<?>) injectable).evict();
+                removed.add(injectable);
+            }
+        }
+
+        this.purgeExpiring();
+        this.compactOrder();
+        return removed;
+    }
+
+    /**
+     * Drops untracked injectables from the expiration queue once they make up most of it, or are first to expire.
+     */
+    private void purgeExpiring() {
+
+        if ((this.cancelled * 2) > this.expiring.size()) {
+            this.expiring.removeIf(injectable -> !this.tracked.contains(injectable));
+            this.cancelled = 0;
+        }
+
+        while (!this.expiring.isEmpty() && !this.tracked.contains(this.expiring.peek())) {
+            this.expiring.poll();
+            this.cancelled--;
+        }
+
+        this.nextDeadline = this.expiring.isEmpty() ? Long.MAX_VALUE : this.expiring.peek().getDeadline();
+    }
+
+    /**
+     * Drops untracked injectables from the registration order once they make up most of it.
+     */
+    private void compactOrder() {
+        if (this.order.size() > ((this.tracked.size() * 2) + 16)) {
+            this.order.removeIf(injectable -> !this.tracked.contains(injectable));
+        }
+    }
+
+    private static final class Tracker extends WeakReference<Object> {
+
+        private final Injectable injectable;
+
+        private Tracker(Object referent, ReferenceQueue<Object> queue, Injectable injectable) {
+            super(referent, queue);
+            this.injectable = injectable;
+        }
+    }
+}
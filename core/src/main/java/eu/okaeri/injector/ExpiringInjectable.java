@@ -0,0 +1,25 @@
+package eu.okaeri.injector;
+
+/**
+ * Injectable removed from the registry after its time to live elapses.
+ *
+ * @see Injectable#expiring(String, Object, Class, java.time.Duration)
+ */
+final class ExpiringInjectable<T> extends EvictableInjectable<T> {
+
+    private final long deadline;
+
+    ExpiringInjectable(String name, T object, Class<T> type, long ttlNanos) {
+        super(name, object, type);
+        this.deadline = System.nanoTime() + ttlNanos;
+    }
+
+    long getDeadline() {
+        return this.deadline;
+    }
+
+    @Override
+    public boolean isAlive() {
+        return super.isAlive() && ((System.nanoTime() - this.deadline) < 0);
+    }
+}
@@ -0,0 +1,221 @@
+package eu.okaeri.injector;
+
+import eu.okaeri.injector.exception.InjectorException;
+import lombok.NonNull;
+
+import java.util.*;
+import java.util.function.Predicate;
+
+/**
+ * Immutable snapshot of the injectables, optimized for reads.
+ * <p>
+ * Results are precomputed for every type (and name) the injectables are assignable to
+ * and stored in open-addressed tables, so lookups are lock-free and do not allocate.
+ * All modifications are rejected, but evictable injectables may still die: lookups and views
+ * of snapshots containing them skip dead entries.
+ */
+final class FrozenInjectableRegistry implements InjectableRegistry {
+
+    private final List<Injectable> all;
+    private final boolean evictable;
+
+    private final int typeMask;
+    private final Class<?>[] typeKeys;
+    private final List<Injectable>[] typeValues;
+    private final Optional<Injectable>[] typeNewest;
+
+    private final int nameMask;
+    private final String[] nameKeys;
+    private final Class<?>[] nameTypeKeys;
+    private final Optional<Injectable>[] nameValues;
+
+    @SuppressWarnings("unchecked")
+    private FrozenInjectableRegistry(List<Injectable> injectables) {
+
+        this.all = Collections.unmodifiableList(Arrays.asList(injectables.toArray(new Injectable[0])));
+
+        // newest first, so the first entry found is the one to be returned
+        Map<Class<?>, List<Injectable>> byType = new LinkedHashMap<>();
+        Map<String, Map<Class<?>, Injectable>> byName = new LinkedHashMap<>();
+        int named = 0;
+        boolean evictable = false;
+
+        for (Injectable injectable : this.all) {
+            evictable |= injectable instanceof EvictableInjectable;
+            String name = injectable.getName();
+            for (Class<?> type : IndexedInjectableRegistry.hierarchyOf(injectable.getType())) {
+                byType.computeIfAbsent(type, key -> new ArrayList<>()).add(injectable);
+                if (!name.isEmpty() && (byName.computeIfAbsent(name, key -> new HashMap<>()).putIfAbsent(type, injectable) == null)) {
+                    named++;
+                }
+            }
+        }
+
+        this.evictable = evictable;
+        int typeCapacity = capacity(byType.size());
+        this.typeMask = typeCapacity - 1;
+        this.typeKeys = new Class<?>[typeCapacity];
+        this.typeValues = new List[typeCapacity];
+        this.typeNewest = new Optional[typeCapacity];
+
+        for (Map.Entry<Class<?>, List<Injectable>> entry : byType.entrySet()) {
+            int index = hash(entry.getKey()) & this.typeMask;
+            while (this.typeKeys[index] != null) {
+                index = (index + 1) & this.typeMask;
+            }
+            List<Injectable> values = entry.getValue();
+            this.typeKeys[index] = entry.getKey();
+            this.typeValues[index] = Collections.unmodifiableList(Arrays.asList(values.toArray(new Injectable[0])));
+            this.typeNewest[index] = Optional.of(values.get(0));
+        }
+
+        int nameCapacity = capacity(named);
+        this.nameMask = nameCapacity - 1;
+        this.nameKeys = new String[nameCapacity];
+        this.nameTypeKeys = new Class<?>[nameCapacity];
+        this.nameValues = new Optional[nameCapacity];
+
+        for (Map.Entry<String, Map<Class<?>, Injectable>> nameEntry : byName.entrySet()) {
+            for (Map.Entry<Class<?>, Injectable> entry : nameEntry.getValue().entrySet()) {
+                int index = hash(nameEntry.getKey(), entry.getKey()) & this.nameMask;
+                while (this.nameKeys[index] != null) {
+                    index = (index + 1) & this.nameMask;
+                }
+                this.nameKeys[index] = nameEntry.getKey();
+                this.nameTypeKeys[index] = entry.getKey();
+                this.nameValues[index] = Optional.of(entry.getValue());
+            }
+        }
+    }
+
+    /**
+     * @param injectables injectables ordered like {@link InjectableRegistry#all()}
+     */
+    static FrozenInjectableRegistry of(@NonNull List<Injectable> injectables) {
+        return new FrozenInjectableRegistry(injectables);
+    }
+
+    private static int capacity(int size) {
+        // load factor of at most 0.5, at least one empty slot to terminate probing
+        int capacity = 2;
+        while (capacity < (size * 2)) {
+            capacity <<= 1;
+        }
+        return capacity;
+    }
+
+    private static int hash(Class<?> type) {
+        int hash = System.identityHashCode(type);
+        return hash ^ (hash >>> 16);
+    }
+
+    private static int hash(String name, Class<?> type) {
+        int hash = (name.hashCode() * 31) + System.identityHashCode(type);
+        return hash ^ (hash >>> 16);
+    }
+
+    private int typeIndex(Class<?> type) {
+        int index = hash(type) & this.typeMask;
+        Class<?> key;
+        while ((key = this.typeKeys[index]) != null) {
+            if (key == type) {
+                return index;
+            }
+            index = (index + 1) & this.typeMask;
+        }
+        return -1;
+    }
+
+    private int nameIndex(String name, Class<?> type) {
+        int index = hash(name, type) & this.nameMask;
+        String key;
+        while ((key = this.nameKeys[index]) != null) {
+            if ((this.nameTypeKeys[index] == type) && key.equals(name)) {
+                return index;
+            }
+            index = (index + 1) & this.nameMask;
+        }
+        return -1;
+    }
+
+    @Override
+    public void register(@NonNull Injectable injectable) {
+        throw new InjectorException("Cannot register " + injectable + " in frozen injector");
+    }
+
+    @Override
+    public Collection<Injectable> registerExclusive(@NonNull Injectable injectable, @NonNull InjectableBatch.Exclusion exclusion) {
+        throw new InjectorException("Cannot register " + injectable + " in frozen injector");
+    }
+
+    @Override
+    public Collection<Injectable> registerAll(@NonNull List<InjectableBatch.Entry> entries) {
+        throw new InjectorException("Cannot register " + entries.size() + " injectables in frozen injector");
+    }
+
+    @Override
+    public Collection<Injectable> removeIf(@NonNull Predicate<Injectable> filter) {
+        throw new InjectorException("Cannot remove injectables from frozen injector");
+    }
+
+    @Override
+    public void setEvictableLimit(int limit) {
+        throw new InjectorException("Cannot change evictable limit of frozen injector");
+    }
+
+    @Override
+    public List<Injectable> all() {
+        return this.evictable ? alive(this.all) : this.all;
+    }
+
+    @Override
+    public List<Injectable> allOf(@NonNull Class<?> type) {
+        int index = this.typeIndex(type);
+        if (index == -1) {
+            return Collections.emptyList();
+        }
+        return this.evictable ? alive(this.typeValues[index]) : this.typeValues[index];
+    }
+
+    private static List<Injectable> alive(List<Injectable> injectables) {
+        List<Injectable> alive = new ArrayList<>(injectables.size());
+        for (Injectable injectable : injectables) {
+            if (injectable.isAlive()) {
+                alive.add(injectable);
+            }
+        }
+        return Collections.unmodifiableList(alive);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> Injectable<T> findExact(@NonNull String name, @NonNull Class<T> type) {
+        return (Injectable<T>) this.lookup(name, type).orElse(null);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> Optional<? extends Injectable<T>> lookup(@NonNull String name, @NonNull Class<T> type) {
+
+        Optional<Injectable> result;
+        if (name.isEmpty()) {
+            int index = this.typeIndex(type);
+            result = (index == -1) ? Optional.empty() : this.typeNewest[index];
+        } else {
+            int index = this.nameIndex(name, type);
+            result = (index == -1) ? Optional.empty() : this.nameValues[index];
+        }
+
+        if (!this.evictable || !result.isPresent() || result.get().isAlive()) {
+            return (Optional) result;
+        }
+
+        // newest one is dead, older ones are not indexed by name
+        for (Injectable injectable : this.allOf(type)) {
+            if (name.isEmpty() || name.equals(injectable.getName())) {
+                return (Optional) Optional.of(injectable);
+            }
+        }
+        return Optional.empty();
+    }
+}
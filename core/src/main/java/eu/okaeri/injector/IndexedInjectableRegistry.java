@@ -0,0 +1,600 @@
+package eu.okaeri.injector;
+
+import lombok.NonNull;
+import lombok.RequiredArgsConstructor;
+
+import java.lang.ref.Reference;
+import java.lang.reflect.Array;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Predicate;
+
+/**
+ * Indexed, mutable storage of the injectables.
+ * <p>
+ * Every injectable is indexed under each type it is assignable to, both by type
+ * only and by its name, so lookups do not depend on the size of the registry
+ * and {@link #allOf(Class)} returns a precomputed view of the matches.
+ * Writes are serialized, reads are lock-free.
+ * <p>
+ * Registrations and removals update the affected index entries only, batches
+ * are applied to a copy of the index sharing the unaffected buckets, which is
+ * then published at once.
+ * <p>
+ * Evicted, expired and collected injectables are skipped by the reads immediately
+ * and removed incrementally: buckets are compacted once most of their entries are dead.
+ */
+final class IndexedInjectableRegistry implements InjectableRegistry {
+
+    private static final ClassValue<Class<?>[]> HIERARCHY = new ClassValue<Class<?>[]>() {
+        @Override
+        protected Class<?>[] computeValue(Class<?> type) {
+            return resolveHierarchy(type);
+        }
+    };
+
+    private volatile Index index = new Index();
+    private final Evictions evictions = new Evictions();
+
+    /**
+     * Resolves all types that {@code type} is assignable to,
+     * including itself, superclasses, interfaces and array covariants.
+     */
+    static Class<?>[] hierarchyOf(@NonNull Class<?> type) {
+        return HIERARCHY.get(type);
+    }
+
+    private static Class<?>[] resolveHierarchy(Class<?> type) {
+
+        Set<Class<?>> types = new LinkedHashSet<>();
+        collectHierarchy(type, types);
+
+        if (type.isPrimitive()) {
+            return types.toArray(new Class<?>[0]);
+        }
+
+        // e.g. String[] is also Object[] and CharSequence[]
+        Class<?> componentType = type.getComponentType();
+        if ((componentType != null) && !componentType.isPrimitive()) {
+            for (Class<?> componentSuperType : hierarchyOf(componentType)) {
+                types.add(Array.newInstance(componentSuperType, 0).getClass());
+            }
+        }
+
+        types.add(Object.class);
+        return types.toArray(new Class<?>[0]);
+    }
+
+    private static void collectHierarchy(Class<?> type, Set<Class<?>> types) {
+
+        if ((type == null) || !types.add(type)) {
+            return;
+        }
+
+        collectHierarchy(type.getSuperclass(), types);
+        for (Class<?> interfaceType : type.getInterfaces()) {
+            collectHierarchy(interfaceType, types);
+        }
+    }
+
+    @Override
+    public synchronized void register(@NonNull Injectable injectable) {
+        this.index.add(injectable);
+        this.evictions.track(injectable);
+        this.expunge(null);
+    }
+
+    /**
+     * The injectable is added before the excluded ones are removed,
+     * so lookups never observe a state in which neither is present.
+     */
+    @Override
+    public synchronized Collection<Injectable> registerExclusive(@NonNull Injectable injectable, @NonNull InjectableBatch.Exclusion exclusion) {
+
+        Index index = this.index;
+        Set<Injectable> excluded = Collections.newSetFromMap(new IdentityHashMap<>());
+
+        // only injectables of the same name can be excluded
+        for (Injectable existing : index.named(injectable.getName())) {
+            if (exclusion.excludes(injectable, existing)) {
+                excluded.add(existing);
+            }
+        }
+
+        index.add(injectable);
+        index.remove(excluded);
+
+        this.evictions.forget(excluded);
+        this.evictions.track(injectable);
+        this.expunge(null);
+        return excluded;
+    }
+
+    /**
+     * Exclusions are matched against entries with the same name only and only the affected buckets
+     * are copied, so the cost is linear in the size of the batch and the affected buckets
+     * (plus a shallow copy of the index maps), not the size of the registry.
+     */
+    @Override
+    public synchronized Collection<Injectable> registerAll(@NonNull List<InjectableBatch.Entry> entries) {
+
+        // exclusive registrations by name, with their position in the batch
+        Map<String, List<Integer>> exclusions = new HashMap<>();
+        for (int i = 0; i < entries.size(); i++) {
+            InjectableBatch.Entry entry = entries.get(i);
+            if (entry.getExclusion() != InjectableBatch.Exclusion.NONE) {
+                exclusions.computeIfAbsent(entry.getInjectable().getName(), name -> new ArrayList<>()).add(i);
+            }
+        }
+
+        Index index = this.index;
+        Set<Injectable> excluded = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (String name : exclusions.keySet()) {
+            for (Injectable existing : index.named(name)) {
+                if (existing.isAlive() && isExcluded(existing, -1, entries, exclusions)) {
+                    excluded.add(existing);
+                }
+            }
+        }
+
+        Index updated = index.fork();
+        updated.remove(excluded);
+
+        for (int i = 0; i < entries.size(); i++) {
+            Injectable injectable = entries.get(i).getInjectable();
+            if (!isExcluded(injectable, i, entries, exclusions)) {
+                updated.add(injectable);
+                this.evictions.track(injectable);
+            }
+        }
+
+        this.index = updated.publish();
+        this.evictions.forget(excluded);
+        this.expunge(null);
+        return excluded;
+    }
+
+    private static boolean isExcluded(Injectable injectable, int position, List<InjectableBatch.Entry> entries, Map<String, List<Integer>> exclusions) {
+
+        List<Integer> positions = exclusions.get(injectable.getName());
+        if (positions == null) {
+            return false;
+        }
+
+        for (int i = positions.size() - 1; i >= 0; i--) {
+            int exclusivePosition = positions.get(i);
+            if (exclusivePosition <= position) {
+                break;
+            }
+            InjectableBatch.Entry exclusive = entries.get(exclusivePosition);
+            if (exclusive.getExclusion().excludes(exclusive.getInjectable(), injectable)) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    @Override
+    public synchronized Collection<Injectable> removeIf(@NonNull Predicate<Injectable> filter) {
+
+        Index index = this.index;
+        Set<Injectable> removed = Collections.newSetFromMap(new IdentityHashMap<>());
+
+        for (Injectable injectable : index.all.ascending()) {
+            if (filter.test(injectable)) {
+                removed.add(injectable);
+            }
+        }
+
+        index.remove(removed);
+        this.evictions.forget(removed);
+        return removed;
+    }
+
+    @Override
+    public synchronized void setEvictableLimit(int limit) {
+        this.evictions.setLimit(limit);
+        this.expunge(null);
+    }
+
+    /**
+     * Removes collected and expired injectables on behalf of the readers, if there are any.
+     */
+    private void maintain() {
+        Reference<?> polled = this.evictions.poll();
+        if ((polled != null) || this.evictions.isDue()) {
+            synchronized (this) {
+                this.expunge(polled);
+            }
+        }
+    }
+
+    private void expunge(Reference<?> polled) {
+        List<Injectable> removed = this.evictions.collect(polled);
+        if (!removed.isEmpty()) {
+            this.index.expunge(removed);
+        }
+    }
+
+    @Override
+    public List<Injectable> all() {
+        this.maintain();
+        return this.index.all.descending();
+    }
+
+    @Override
+    public List<Injectable> allOf(@NonNull Class<?> type) {
+        this.maintain();
+        Bucket bucket = this.index.byType.get(type);
+        return (bucket == null) ? Collections.emptyList() : bucket.descending();
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> Injectable<T> findExact(@NonNull String name, @NonNull Class<T> type) {
+
+        this.maintain();
+        Index index = this.index;
+        Bucket bucket;
+
+        if (name.isEmpty()) {
+            bucket = index.byType.get(type);
+        } else {
+            Map<Class<?>, Bucket> named = index.byName.get(name);
+            bucket = (named == null) ? null : named.get(type);
+        }
+
+        return (bucket == null) ? null : (Injectable<T>) bucket.newest();
+    }
+
+    private static final class Index {
+
+        private final Bucket all;
+        private final ConcurrentMap<Class<?>, Bucket> byType;
+        private final ConcurrentMap<String, ConcurrentMap<Class<?>, Bucket>> byName;
+
+        /**
+         * Named maps created by an unpublished fork, the other ones (and buckets owned by another index) are
+         * still shared with the published index and are copied before modification. {@code null} once published.
+         */
+        private Set<Map<Class<?>, Bucket>> owned;
+
+        /**
+         * Identity of the buckets created by this index, not the index itself so replaced indexes can be collected.
+         */
+        private final Object token = new Object();
+
+        private Index() {
+            this.all = new Bucket(this.token);
+            this.byType = new ConcurrentHashMap<>();
+            this.byName = new ConcurrentHashMap<>();
+        }
+
+        private Index(Index index) {
+            this.all = index.all.copy(this.token);
+            this.byType = new ConcurrentHashMap<>(index.byType);
+            this.byName = new ConcurrentHashMap<>(index.byName);
+            this.owned = Collections.newSetFromMap(new IdentityHashMap<>());
+        }
+
+        /**
+         * @return copy sharing the buckets with this index until they are modified
+         */
+        private Index fork() {
+            return new Index(this);
+        }
+
+        /**
+         * Ends the copying of the shared buckets, the index replacing this one is no longer modified.
+         */
+        private Index publish() {
+            this.owned = null;
+            return this;
+        }
+
+        private ConcurrentMap<Class<?>, Bucket> named(String name, boolean create) {
+
+            ConcurrentMap<Class<?>, Bucket> named = this.byName.get(name);
+            if (named == null) {
+                if (!create) {
+                    return null;
+                }
+                named = new ConcurrentHashMap<>();
+            } else if ((this.owned == null) || this.owned.contains(named)) {
+                return named;
+            } else {
+                named = new ConcurrentHashMap<>(named);
+            }
+
+            if (this.owned != null) {
+                this.owned.add(named);
+            }
+            this.byName.put(name, named);
+            return named;
+        }
+
+        private <K> Bucket bucket(ConcurrentMap<K, Bucket> buckets, K key, boolean create) {
+
+            Bucket bucket = buckets.get(key);
+            if (bucket == null) {
+                if (!create) {
+                    return null;
+                }
+                bucket = new Bucket(this.token);
+            } else if ((this.owned == null) || (bucket.owner == this.token)) {
+                return bucket;
+            } else {
+                bucket = bucket.copy(this.token);
+            }
+
+            buckets.put(key, bucket);
+            return bucket;
+        }
+
+        private void add(Injectable injectable) {
+
+            String name = injectable.getName();
+            ConcurrentMap<Class<?>, Bucket> named = name.isEmpty() ? null : this.named(name, true);
+
+            for (Class<?> type : hierarchyOf(injectable.getType())) {
+                this.bucket(this.byType, type, true).append(injectable);
+                if (named != null) {
+                    this.bucket(named, type, true).append(injectable);
+                }
+            }
+
+            this.all.append(injectable);
+        }
+
+        /**
+         * @return injectables registered with the name, empty name matches all injectables
+         */
+        private Collection<Injectable> named(String name) {
+
+            if (name.isEmpty()) {
+                return this.all.ascending();
+            }
+
+            ConcurrentMap<Class<?>, Bucket> named = this.byName.get(name);
+            if (named == null) {
+                return Collections.emptyList();
+            }
+
+            // primitives are not indexed under Object
+            Set<Injectable> injectables = Collections.newSetFromMap(new IdentityHashMap<>());
+            for (Bucket bucket : named.values()) {
+                injectables.addAll(bucket.ascending());
+            }
+            return injectables;
+        }
+
+        /**
+         * Filters every bucket containing the removed injectables once, dropping emptied buckets.
+         */
+        private void remove(Set<Injectable> removed) {
+
+            if (removed.isEmpty()) {
+                return;
+            }
+
+            Set<Bucket> buckets = Collections.newSetFromMap(new IdentityHashMap<>());
+            for (Injectable injectable : removed) {
+                ConcurrentMap<Class<?>, Bucket> named = this.named(injectable.getName(), false);
+                for (Class<?> type : hierarchyOf(injectable.getType())) {
+                    this.filter(this.byType, type, removed, buckets);
+                    if (named != null) {
+                        this.filter(named, type, removed, buckets);
+                    }
+                }
+                if ((named != null) && named.isEmpty()) {
+                    this.byName.remove(injectable.getName(), named);
+                }
+            }
+
+            this.all.removeAll(removed);
+        }
+
+        /**
+         * Counts the removed injectables as dead entries of their buckets, compacting
+         * buckets made mostly of dead entries. Dead entries are skipped by the reads.
+         */
+        private void expunge(Collection<Injectable> removed) {
+
+            for (Injectable injectable : removed) {
+                ConcurrentMap<Class<?>, Bucket> named = this.byName.get(injectable.getName());
+                for (Class<?> type : hierarchyOf(injectable.getType())) {
+                    tombstone(this.byType, type);
+                    if (named != null) {
+                        tombstone(named, type);
+                    }
+                }
+                if ((named != null) && named.isEmpty()) {
+                    this.byName.remove(injectable.getName(), named);
+                }
+                this.all.tombstone();
+            }
+        }
+
+        private static <K> void tombstone(ConcurrentMap<K, Bucket> buckets, K key) {
+            Bucket bucket = buckets.get(key);
+            if ((bucket != null) && bucket.tombstone() && bucket.isEmpty()) {
+                buckets.remove(key, bucket);
+            }
+        }
+
+        private <K> void filter(ConcurrentMap<K, Bucket> buckets, K key, Set<Injectable> removed, Set<Bucket> filtered) {
+
+            Bucket bucket = this.bucket(buckets, key, false);
+            if ((bucket == null) || !filtered.add(bucket)) {
+                return;
+            }
+
+            bucket.removeAll(removed);
+            if (bucket.isEmpty()) {
+                buckets.remove(key, bucket);
+            }
+        }
+    }
+
+    /**
+     * Append-only list of injectables in the registration order.
+     * <p>
+     * Published segments share the backing array, but slots
+     * below the size of a published segment are never rewritten.
+     */
+    private static final class Bucket {
+
+        private final Object owner;
+        private volatile Segment segment = new Segment(new Injectable[4], 0, false);
+        private int dead;
+
+        private Bucket(Object owner) {
+            this.owner = owner;
+        }
+
+        /**
+         * @return bucket replacing this one in a forked index, sharing the segments: only one of them is appended to afterwards
+         */
+        private Bucket copy(Object owner) {
+            Bucket copy = new Bucket(owner);
+            copy.segment = this.segment;
+            copy.dead = this.dead;
+            return copy;
+        }
+
+        private void append(Injectable injectable) {
+
+            Segment current = this.segment;
+            Injectable[] entries = current.entries;
+
+            if (current.size == entries.length) {
+                entries = Arrays.copyOf(entries, entries.length * 2);
+            }
+
+            entries[current.size] = injectable;
+            this.segment = new Segment(entries, current.size + 1, current.evictable || (injectable instanceof EvictableInjectable));
+        }
+
+        /**
+         * Counts dead entry, compacting the bucket once at least half of the entries are dead.
+         *
+         * @return whether the bucket was compacted
+         */
+        private boolean tombstone() {
+
+            Segment current = this.segment;
+            if ((++this.dead * 2) < current.size) {
+                return false;
+            }
+
+            Injectable[] entries = new Injectable[current.entries.length];
+            int size = 0;
+            for (int i = 0; i < current.size; i++) {
+                if (current.entries[i].isAlive()) {
+                    entries[size++] = current.entries[i];
+                }
+            }
+
+            this.segment = new Segment(entries, size, current.evictable);
+            this.dead = 0;
+            return true;
+        }
+
+        /**
+         * Publishes a copy without the removed injectables, segments published before are not affected.
+         */
+        private void removeAll(Set<Injectable> removed) {
+
+            Segment current = this.segment;
+            Injectable[] entries = new Injectable[current.entries.length];
+            int size = 0;
+
+            // exclusive registrations remove a few injectables at most, avoid hashing every entry
+            Injectable[] few = (removed.size() <= 4) ? removed.toArray(new Injectable[0]) : null;
+
+            for (int i = 0; i < current.size; i++) {
+                Injectable injectable = current.entries[i];
+                if ((few == null) ? !removed.contains(injectable) : !contains(few, injectable)) {
+                    entries[size++] = injectable;
+                }
+            }
+
+            if (size != current.size) {
+                this.segment = new Segment(entries, size, current.evictable);
+            }
+        }
+
+        private static boolean contains(Injectable[] injectables, Injectable injectable) {
+            for (Injectable candidate : injectables) {
+                if (candidate == injectable) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private boolean isEmpty() {
+            return this.segment.size == 0;
+        }
+
+        private Injectable newest() {
+            Segment current = this.segment;
+            for (int i = current.size - 1; i >= 0; i--) {
+                Injectable injectable = current.entries[i];
+                if (injectable.isAlive()) {
+                    return injectable;
+                }
+            }
+            return null;
+        }
+
+        private List<Injectable> ascending() {
+            Segment current = this.segment;
+            return Collections.unmodifiableList(Arrays.asList(current.entries).subList(0, current.size));
+        }
+
+        private List<Injectable> descending() {
+
+            Segment current = this.segment;
+            if (!current.evictable) {
+                return new DescendingView(current);
+            }
+
+            List<Injectable> alive = new ArrayList<>(current.size);
+            for (int i = current.size - 1; i >= 0; i--) {
+                if (current.entries[i].isAlive()) {
+                    alive.add(current.entries[i]);
+                }
+            }
+            return Collections.unmodifiableList(alive);
+        }
+    }
+
+    @RequiredArgsConstructor
+    private static final class Segment {
+        private final Injectable[] entries;
+        private final int size;
+        private final boolean evictable;
+    }
+
+    @RequiredArgsConstructor
+    private static final class DescendingView extends AbstractList<Injectable> implements RandomAccess {
+
+        private final Segment segment;
+
+        @Override
+        public Injectable get(int index) {
+            if ((index < 0) || (index >= this.segment.size)) {
+                throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + this.segment.size);
+            }
+            return this.segment.entries[this.segment.size - 1 - index];
+        }
+
+        @Override
+        public int size() {
+            return this.segment.size;
+        }
+    }
+}
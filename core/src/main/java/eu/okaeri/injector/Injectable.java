@@ -0,0 +1,65 @@
+package eu.okaeri.injector;
+
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NonNull;
+
+import java.time.Duration;
+import java.util.function.Supplier;
+
+@Data
+@AllArgsConstructor(access = AccessLevel.PACKAGE)
+public class Injectable<T> {
+
+    private final String name;
+    private final T object;
+    private final Class<T> type;
+
+    public static <T> Injectable<T> of(@NonNull String name, @NonNull T object, @NonNull Class<T> type) {
+        return new Injectable<>(name, object, type);
+    }
+
+    /**
+     * Creates injectable which is evicted (oldest first) when the registry exceeds its limit of evictable injectables.
+     * Evictable injectables are equal only to themselves.
+     *
+     * @see OkaeriInjector#setEvictableLimit(int)
+     */
+    public static <T> Injectable<T> evictable(@NonNull String name, @NonNull T object, @NonNull Class<T> type) {
+        return new EvictableInjectable<>(name, object, type);
+    }
+
+    /**
+     * Creates evictable injectable referencing the object weakly. It is no longer resolvable once the object
+     * is collected and is then removed from the registry without scanning it.
+     */
+    public static <T> Injectable<T> weak(@NonNull String name, @NonNull T object, @NonNull Class<T> type) {
+        return new WeakInjectable<>(name, object, type);
+    }
+
+    /**
+     * Creates evictable injectable which is no longer resolvable after {@code ttl} elapses
+     * and is then removed from the registry without scanning it.
+     */
+    public static <T> Injectable<T> expiring(@NonNull String name, @NonNull T object, @NonNull Class<T> type, @NonNull Duration ttl) {
+        return new ExpiringInjectable<>(name, object, type, ttl.toNanos());
+    }
+
+    /**
+     * Creates injectable with the object created by {@code supplier} on the first {@code getObject()}.
+     * <p>
+     * The supplier is invoked at most once, even under concurrent resolution, unless it fails with an exception.
+     * Lazy injectables are equal only to themselves.
+     */
+    public static <T> Injectable<T> lazy(@NonNull String name, @NonNull Supplier<? extends T> supplier, @NonNull Class<T> type) {
+        return new LazyInjectable<>(name, supplier, type);
+    }
+
+    /**
+     * @return whether the injectable can be resolved, {@code false} once it was evicted, expired or its object was collected
+     */
+    public boolean isAlive() {
+        return true;
+    }
+}
@@ -0,0 +1,121 @@
+package eu.okaeri.injector;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.NonNull;
+import lombok.RequiredArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * Registrations applied at once using {@link Injector#registerAll(InjectableBatch)}.
+ * <p>
+ * Operations are applied in the order they were added, as if called one by one on the injector:
+ * the most recently registered injectable wins and exclusive registrations remove matching
+ * injectables registered before them, including the ones from the same batch.
+ */
+public class InjectableBatch {
+
+    private final List<Entry> entries = new ArrayList<>();
+
+    public static InjectableBatch create() {
+        return new InjectableBatch();
+    }
+
+    public <T> InjectableBatch register(@NonNull String name, @NonNull T object, @NonNull Class<T> type) {
+        this.entries.add(new Entry(Injectable.of(name, object, type), Exclusion.NONE));
+        return this;
+    }
+
+    @SuppressWarnings("unchecked")
+    public <T> InjectableBatch register(@NonNull T object) {
+        return this.register("", object, (Class<T>) object.getClass());
+    }
+
+    @SuppressWarnings("unchecked")
+    public <T> InjectableBatch register(@NonNull String name, @NonNull T object) {
+        return this.register(name, object, (Class<T>) object.getClass());
+    }
+
+    /**
+     * @see Injector#registerLazy(String, Supplier, Class)
+     */
+    public <T> InjectableBatch registerLazy(@NonNull String name, @NonNull Supplier<? extends T> supplier, @NonNull Class<T> type) {
+        this.entries.add(new Entry(Injectable.lazy(name, supplier, type), Exclusion.NONE));
+        return this;
+    }
+
+    /**
+     * @see Injector#registerExclusive(String, Object)
+     */
+    @SuppressWarnings("unchecked")
+    public <T> InjectableBatch registerExclusive(@NonNull String name, @NonNull T object) {
+        this.entries.add(new Entry(Injectable.of(name, object, (Class<T>) object.getClass()), Exclusion.RELATED));
+        return this;
+    }
+
+    /**
+     * @see Injector#registerExclusive(String, Object, Class)
+     */
+    public <T> InjectableBatch registerExclusive(@NonNull String name, @NonNull T object, @NonNull Class<T> type) {
+        this.entries.add(new Entry(Injectable.of(name, object, type), Exclusion.SUBTYPES));
+        return this;
+    }
+
+    public InjectableBatch registerAll(@NonNull Iterable<? extends Injectable> injectables) {
+        for (Injectable injectable : injectables) {
+            this.entries.add(new Entry(injectable, Exclusion.NONE));
+        }
+        return this;
+    }
+
+    public List<Entry> getEntries() {
+        return Collections.unmodifiableList(this.entries);
+    }
+
+    public int size() {
+        return this.entries.size();
+    }
+
+    public enum Exclusion {
+
+        /**
+         * Plain registration.
+         */
+        NONE,
+
+        /**
+         * Removes injectables with the same name being same type, supertype or subtype.
+         */
+        RELATED,
+
+        /**
+         * Removes injectables with the same name being same type or subtype.
+         */
+        SUBTYPES;
+
+        /**
+         * @return whether {@code existing} is removed by exclusive registration of {@code injectable}
+         */
+        public boolean excludes(@NonNull Injectable injectable, @NonNull Injectable existing) {
+
+            if ((this == NONE) || !injectable.getName().equals(existing.getName())) {
+                return false;
+            }
+
+            Class<?> type = injectable.getType();
+            return type.isAssignableFrom(existing.getType())
+                || ((this == RELATED) && existing.getType().isAssignableFrom(type));
+        }
+    }
+
+    @Getter
+    @RequiredArgsConstructor(access = AccessLevel.PRIVATE)
+    public static class Entry {
+        private final Injectable injectable;
+        private final Exclusion exclusion;
+    }
+}
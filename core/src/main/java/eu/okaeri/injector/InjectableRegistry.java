@@ -0,0 +1,64 @@
+package eu.okaeri.injector;
+
+import lombok.NonNull;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Predicate;
+
+/**
+ * Storage of the injectables backing {@link OkaeriInjector}.
+ */
+interface InjectableRegistry {
+
+    void register(@NonNull Injectable injectable);
+
+    /**
+     * Registers injectable, removing the ones excluded by it.
+     *
+     * @return removed injectables
+     * @see InjectableBatch.Exclusion#excludes(Injectable, Injectable)
+     */
+    Collection<Injectable> registerExclusive(@NonNull Injectable injectable, @NonNull InjectableBatch.Exclusion exclusion);
+
+    /**
+     * Applies the batch and publishes the result at once.
+     *
+     * @return previously registered injectables removed by the exclusive registrations
+     */
+    Collection<Injectable> registerAll(@NonNull List<InjectableBatch.Entry> entries);
+
+    /**
+     * @return removed injectables
+     */
+    Collection<Injectable> removeIf(@NonNull Predicate<Injectable> filter);
+
+    /**
+     * Sets the maximum number of {@link EvictableInjectable}s, evicting the oldest ones when exceeded.
+     */
+    void setEvictableLimit(int limit);
+
+    /**
+     * @return view of all injectables, most recently registered first
+     */
+    List<Injectable> all();
+
+    /**
+     * @return view of injectables assignable to {@code type}, most recently registered first
+     */
+    List<Injectable> allOf(@NonNull Class<?> type);
+
+    /**
+     * Finds most recently registered injectable assignable to {@code type}.
+     * Empty {@code name} matches injectables of any name.
+     */
+    <T> Injectable<T> findExact(@NonNull String name, @NonNull Class<T> type);
+
+    /**
+     * Same as {@link #findExact(String, Class)}, implementations may return cached optionals.
+     */
+    default <T> Optional<? extends Injectable<T>> lookup(@NonNull String name, @NonNull Class<T> type) {
+        return Optional.ofNullable(this.findExact(name, type));
+    }
+}
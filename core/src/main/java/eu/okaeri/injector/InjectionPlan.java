@@ -0,0 +1,394 @@
+package eu.okaeri.injector;
+
+import eu.okaeri.injector.annotation.Inject;
+import eu.okaeri.injector.annotation.PostConstruct;
+import eu.okaeri.injector.annotation.PreDestroy;
+import eu.okaeri.injector.generated.GeneratedInjector;
+import eu.okaeri.injector.generated.GeneratedInjectors;
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.NonNull;
+import lombok.RequiredArgsConstructor;
+
+import java.lang.reflect.*;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Reflection metadata required to create and wire instances of a single class,
+ * along with the build-time {@link GeneratedInjector} if one is available.
+ * <p>
+ * Plans are resolved once per class and cached using {@link ClassValue},
+ * which does not prevent the class (and its class loader) from being unloaded.
+ * Classes with a generated injector are planned using its build-time {@link GeneratedInjector#getFlags() flags},
+ * their {@link Members} are discovered only when reflection is needed, e.g. with generated injectors disabled.
+ * Injection points of unchanged classes can be loaded from the installed {@link MetadataCache}
+ * instead of scanning the annotations.
+ */
+final class InjectionPlan {
+
+    private static final ClassValue<InjectionPlan> PLANS = new ClassValue<InjectionPlan>() {
+        @Override
+        protected InjectionPlan computeValue(Class<?> type) {
+
+            GeneratedInjector<?> generated = GeneratedInjectors.load(type);
+            if ((generated != null) && (generated.getFlags() != GeneratedInjector.UNKNOWN_FLAGS)) {
+                int flags = generated.getFlags();
+                return new InjectionPlan(type, generated,
+                    (flags & GeneratedInjector.AMBIGUOUS_CONSTRUCTOR) != 0,
+                    (flags & GeneratedInjector.ASYNC_POST_CONSTRUCTS) != 0,
+                    (flags & GeneratedInjector.PRE_DESTROYS) != 0,
+                    null);
+            }
+
+            Members members = resolve(type);
+            return new InjectionPlan(type, generated, members.ambiguousConstructor, members.asynchronous, members.preDestroys.length > 0, members);
+        }
+    };
+
+    @Getter
+    private final Class<?> type;
+    @Getter
+    private final GeneratedInjector<?> generated;
+    @Getter
+    private final boolean ambiguousConstructor;
+
+    /**
+     * Whether any of the post constructs is {@link PostConstruct#async()}.
+     */
+    @Getter
+    private final boolean asynchronous;
+
+    /**
+     * Whether the class declares any {@link PreDestroy} methods.
+     */
+    @Getter
+    private final boolean destroyable;
+
+    private volatile Members members;
+    private volatile Invokers invokers;
+
+    private InjectionPlan(Class<?> type, GeneratedInjector<?> generated, boolean ambiguousConstructor, boolean asynchronous, boolean destroyable, Members members) {
+        this.type = type;
+        this.generated = generated;
+        this.ambiguousConstructor = ambiguousConstructor;
+        this.asynchronous = asynchronous;
+        this.destroyable = destroyable;
+        this.members = members;
+    }
+
+    static InjectionPlan of(@NonNull Class<?> type) {
+        return PLANS.get(type);
+    }
+
+    /**
+     * Reflective injection points, discovered on first use for classes planned using the generated injector.
+     */
+    Members members() {
+        Members members = this.members;
+        if (members == null) {
+            // racy but idempotent
+            members = resolve(this.type);
+            this.members = members;
+        }
+        return members;
+    }
+
+    Constructor<?> getConstructor() {
+        return this.members().constructor;
+    }
+
+    Parameter[] getConstructorParameters() {
+        return this.members().constructorParameters;
+    }
+
+    InjectionField[] getFields() {
+        return this.members().fields;
+    }
+
+    Method[] getPostConstructs() {
+        return this.members().postConstructs;
+    }
+
+    Parameter[][] getPostConstructParameters() {
+        return this.members().postConstructParameters;
+    }
+
+    int[] getPostConstructOrders() {
+        return this.members().postConstructOrders;
+    }
+
+    boolean[] getAsyncPostConstructs() {
+        return this.members().asyncPostConstructs;
+    }
+
+    /**
+     * {@link PreDestroy} methods, sorted by order.
+     */
+    Method[] getPreDestroys() {
+        return this.members().preDestroys;
+    }
+
+    /**
+     * Bound constructor and post constructs for the compiled mode, created on first use.
+     */
+    Invokers invokers() {
+        Invokers invokers = this.invokers;
+        if (invokers == null) {
+            // racy but idempotent
+            invokers = Invokers.bind(this.members());
+            this.invokers = invokers;
+        }
+        return invokers;
+    }
+
+    private static Members resolve(Class<?> type) {
+
+        MetadataCache cache = MetadataCache.installed();
+        if (cache == null) {
+            return scan(type);
+        }
+
+        long checksum = MetadataCache.checksum(type);
+        if (checksum == -1) {
+            return scan(type);
+        }
+
+        Members members = cache.resolve(type, checksum);
+        if (members == null) {
+            members = scan(type);
+            cache.store(type, members, checksum);
+        }
+
+        return members;
+    }
+
+    private static Members scan(Class<?> type) {
+
+        // constructor inject
+        List<Constructor<?>> constructors = new ArrayList<>();
+        for (Constructor<?> constructor : type.getConstructors()) {
+            if (constructor.getAnnotation(Inject.class) != null) {
+                constructors.add(constructor);
+            }
+        }
+
+        // field inject
+        List<Field> fields = new ArrayList<>();
+        List<String> names = new ArrayList<>();
+        List<Boolean> exact = new ArrayList<>();
+        for (Field field : type.getDeclaredFields()) {
+
+            Inject inject = field.getAnnotation(Inject.class);
+            if (inject == null) {
+                continue;
+            }
+
+            fields.add(field);
+            exact.add(!inject.value().isEmpty());
+            names.add(inject.value().isEmpty() ? field.getName() : inject.value());
+        }
+
+        // post constructs, sorted by order (stable)
+        Method[] postConstructs = Arrays.stream(type.getDeclaredMethods())
+            .filter(method -> method.getAnnotation(PostConstruct.class) != null)
+            .sorted(Comparator.comparingInt(method -> method.getAnnotation(PostConstruct.class).order()))
+            .toArray(Method[]::new);
+
+        int[] postConstructOrders = new int[postConstructs.length];
+        boolean[] asyncPostConstructs = new boolean[postConstructs.length];
+        for (int i = 0; i < postConstructs.length; i++) {
+            PostConstruct postConstruct = postConstructs[i].getAnnotation(PostConstruct.class);
+            postConstructOrders[i] = postConstruct.order();
+            asyncPostConstructs[i] = postConstruct.async();
+        }
+
+        Method[] preDestroys = Arrays.stream(type.getDeclaredMethods())
+            .filter(method -> method.getAnnotation(PreDestroy.class) != null)
+            .sorted(Comparator.comparingInt(method -> method.getAnnotation(PreDestroy.class).order()))
+            .toArray(Method[]::new);
+
+        boolean[] exactArray = new boolean[exact.size()];
+        for (int i = 0; i < exactArray.length; i++) {
+            exactArray[i] = exact.get(i);
+        }
+
+        return create(
+            (constructors.size() == 1) ? constructors.get(0) : null,
+            constructors.size() > 1,
+            fields.toArray(new Field[0]),
+            names.toArray(new String[0]),
+            exactArray,
+            postConstructs,
+            postConstructOrders,
+            asyncPostConstructs,
+            preDestroys
+        );
+    }
+
+    /**
+     * Creates members from the already discovered injection points, either scanned or loaded from {@link MetadataCache}.
+     */
+    static Members create(Constructor<?> constructor, boolean ambiguousConstructor,
+                          Field[] fields, String[] names, boolean[] exact,
+                          Method[] postConstructs, int[] postConstructOrders, boolean[] asyncPostConstructs,
+                          Method[] preDestroys) {
+
+        Parameter[] constructorParameters = null;
+        if (constructor != null) {
+            constructor.setAccessible(true);
+            constructorParameters = constructor.getParameters();
+        }
+
+        InjectionField[] injectionFields = new InjectionField[fields.length];
+        for (int i = 0; i < fields.length; i++) {
+            Field field = fields[i];
+            field.setAccessible(true);
+            Deferral deferral = Deferral.of(field.getType());
+            Class<?> targetType = deferral.targetType(field.getType(), field.getGenericType());
+            injectionFields[i] = new InjectionField(field, names[i], exact[i], targetType, deferral);
+        }
+
+        Parameter[][] postConstructParameters = new Parameter[postConstructs.length][];
+        boolean asynchronous = false;
+        for (int i = 0; i < postConstructs.length; i++) {
+            postConstructs[i].setAccessible(true);
+            postConstructParameters[i] = postConstructs[i].getParameters();
+            asynchronous |= asyncPostConstructs[i];
+        }
+
+        for (Method preDestroy : preDestroys) {
+            preDestroy.setAccessible(true);
+        }
+
+        return new Members(
+            constructor,
+            constructorParameters,
+            ambiguousConstructor,
+            injectionFields,
+            postConstructs,
+            postConstructParameters,
+            postConstructOrders,
+            asyncPostConstructs,
+            asynchronous,
+            preDestroys
+        );
+    }
+
+    @Getter
+    @RequiredArgsConstructor(access = AccessLevel.PRIVATE)
+    static final class Members {
+
+        private final Constructor<?> constructor;
+        private final Parameter[] constructorParameters;
+        private final boolean ambiguousConstructor;
+        private final InjectionField[] fields;
+        private final Method[] postConstructs;
+        private final Parameter[][] postConstructParameters;
+        private final int[] postConstructOrders;
+        private final boolean[] asyncPostConstructs;
+        private final boolean asynchronous;
+        private final Method[] preDestroys;
+    }
+
+    /**
+     * {@link Invoker}s of the injection points, {@code null} where the member could not be bound
+     * and reflection should be used instead. Fields are always set reflectively.
+     */
+    @Getter
+    @RequiredArgsConstructor(access = AccessLevel.PRIVATE)
+    static final class Invokers {
+
+        private final Invoker constructor;
+        private final Invoker[] postConstructs;
+
+        private static Invokers bind(Members members) {
+
+            Invoker constructor = (members.constructor == null) ? null : Invoker.of(members.constructor);
+
+            Invoker[] postConstructs = new Invoker[members.postConstructs.length];
+            for (int i = 0; i < postConstructs.length; i++) {
+                postConstructs[i] = Invoker.of(members.postConstructs[i]);
+            }
+
+            return new Invokers(constructor, postConstructs);
+        }
+    }
+
+    @Getter
+    @RequiredArgsConstructor(access = AccessLevel.PRIVATE)
+    static final class InjectionField {
+
+        private final Field field;
+
+        /**
+         * Name of the injectable: {@link Inject#value()} or the field name when not specified.
+         */
+        private final String name;
+
+        /**
+         * Whether the name was specified explicitly, in which case no type-only fallback is used.
+         */
+        private final boolean exact;
+
+        /**
+         * Type of the injectable: type of the field or the type argument of {@link Provider}/{@link Lazy}.
+         */
+        private final Class<?> type;
+        private final Deferral deferral;
+    }
+
+    /**
+     * Kind of the injection point: resolved immediately or using {@link Provider}/{@link Lazy}.
+     */
+    enum Deferral {
+
+        NONE,
+        PROVIDER,
+        LAZY;
+
+        static Deferral of(@NonNull Class<?> type) {
+            if (type == Provider.class) {
+                return PROVIDER;
+            }
+            if (type == Lazy.class) {
+                return LAZY;
+            }
+            return NONE;
+        }
+
+        /**
+         * @return type of the injectable to be resolved for the injection point
+         */
+        Class<?> targetType(@NonNull Class<?> type, @NonNull Type genericType) {
+
+            if (this == NONE) {
+                return type;
+            }
+
+            if (!(genericType instanceof ParameterizedType)) {
+                return Object.class;
+            }
+
+            Type argument = ((ParameterizedType) genericType).getActualTypeArguments()[0];
+            if (argument instanceof WildcardType) {
+                argument = ((WildcardType) argument).getUpperBounds()[0];
+            }
+            if (argument instanceof ParameterizedType) {
+                argument = ((ParameterizedType) argument).getRawType();
+            }
+
+            return (argument instanceof Class) ? (Class<?>) argument : Object.class;
+        }
+
+        /**
+         * @return deferred value for the injection point, unused for {@link #NONE}
+         */
+        Object create(@NonNull Injector injector, @NonNull String name, @NonNull Class<?> type, boolean exact) {
+            Provider<?> provider = exact ? injector.getExactProvider(name, type) : injector.getProvider(name, type);
+            return (this == LAZY) ? Lazy.of(provider) : provider;
+        }
+    }
+}
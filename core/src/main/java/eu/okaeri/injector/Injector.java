@@ -6,12 +6,14 @@ import lombok.NonNull;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.Method;
 import java.lang.reflect.Parameter;
+import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
 import java.util.function.Predicate;
+import java.util.function.Supplier;
 import java.util.stream.Stream;
 
-public interface Injector {
+public interface Injector extends AutoCloseable {
 
     <T> Injector registerInjectable(@NonNull String name, @NonNull T object, @NonNull Class<T> type) throws InjectorException;
 
@@ -39,6 +41,27 @@ public interface Injector {
         return this.registerInjectable(name, object, objectClazz);
     }
 
+    /**
+     * Registers injectable created by {@code supplier} when resolved for the first time,
+     * e.g. by {@link #getInjectable(String, Class)} or during the injection.
+     * <p>
+     * The supplier is invoked at most once, even under concurrent resolution, unless it fails with an exception.
+     * Implementations not supporting lazy injectables resolve the supplier on registration.
+     *
+     * @see Injectable#lazy(String, Supplier, Class)
+     */
+    default <T> Injector registerLazy(@NonNull String name, @NonNull Supplier<? extends T> supplier, @NonNull Class<T> type) throws InjectorException {
+        return this.registerAll(InjectableBatch.create().registerLazy(name, supplier, type));
+    }
+
+    /**
+     * Registers prebuilt injectable, e.g. {@link Injectable#weak(String, Object, Class)}
+     * or {@link Injectable#expiring(String, Object, Class, java.time.Duration)}.
+     */
+    default Injector register(@NonNull Injectable<?> injectable) throws InjectorException {
+        return this.registerAll(InjectableBatch.create().registerAll(Collections.singletonList(injectable)));
+    }
+
     /**
      * Registers injectable.
      * <p>
@@ -64,6 +87,31 @@ public interface Injector {
         return this.registerInjectable(name, object, type);
     }
 
+    /**
+     * Applies all registrations from the batch, in order.
+     * <p>
+     * Implementations may publish the whole batch at once, in which case
+     * no lookup can observe the registry with only part of the batch applied.
+     */
+    @SuppressWarnings("unchecked")
+    default Injector registerAll(@NonNull InjectableBatch batch) throws InjectorException {
+        for (InjectableBatch.Entry entry : batch.getEntries()) {
+            Injectable injectable = entry.getInjectable();
+            switch (entry.getExclusion()) {
+                case NONE:
+                    this.registerInjectable(injectable.getName(), injectable.getObject(), injectable.getType());
+                    break;
+                case RELATED:
+                    this.registerExclusive(injectable.getName(), injectable.getObject());
+                    break;
+                case SUBTYPES:
+                    this.registerExclusive(injectable.getName(), injectable.getObject(), injectable.getType());
+                    break;
+            }
+        }
+        return this;
+    }
+
     @SuppressWarnings("unchecked")
     default <T> Optional<? extends Injectable<T>> getInjectable(@NonNull String name, @NonNull Class<T> type) {
 
@@ -88,6 +136,20 @@ public interface Injector {
         return this.get(name, type).orElseThrow(() -> new InjectorException("no injectable for " + name + " of type " + type));
     }
 
+    /**
+     * @return provider resolving the injectable on each call, using the same rules as {@link #getOrThrow(String, Class)}
+     */
+    default <T> Provider<T> getProvider(@NonNull String name, @NonNull Class<T> type) {
+        return () -> this.getOrThrow(name, type);
+    }
+
+    /**
+     * @return provider resolving the injectable on each call, using the same rules as {@link #getExactOrThrow(String, Class)}
+     */
+    default <T> Provider<T> getExactProvider(@NonNull String name, @NonNull Class<T> type) {
+        return () -> this.getExactOrThrow(name, type);
+    }
+
     <T> Optional<? extends Injectable<T>> getInjectableExact(@NonNull String name, @NonNull Class<T> type);
 
     default <T> Optional<T> getExact(@NonNull String name, @NonNull Class<T> type) {
@@ -109,4 +171,14 @@ public interface Injector {
     Object invoke(@NonNull Object object, @NonNull Method method) throws InjectorException;
 
     Object[] fillParameters(@NonNull Parameter[] parameters, boolean force) throws InjectorException;
+
+    /**
+     * Invokes {@link eu.okaeri.injector.annotation.PreDestroy} methods of the created instances
+     * and registered injectables. Does nothing unless supported by the implementation.
+     *
+     * @throws InjectorException if any of the methods failed
+     */
+    @Override
+    default void close() throws InjectorException {
+    }
 }
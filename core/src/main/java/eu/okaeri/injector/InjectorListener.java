@@ -0,0 +1,186 @@
+package eu.okaeri.injector;
+
+import lombok.NonNull;
+
+import java.lang.reflect.Method;
+
+/**
+ * Receives timings and outcomes of the operations performed by {@link OkaeriInjector}.
+ * <p>
+ * Callbacks are invoked synchronously on the calling thread, possibly concurrently,
+ * and should be cheap. No listener is set by default, in which case nothing is measured.
+ *
+ * @see OkaeriInjector#setListener(InjectorListener)
+ * @see eu.okaeri.injector.metrics.InjectorMetrics
+ * @see eu.okaeri.injector.metrics.WiringProfile
+ * @see eu.okaeri.injector.metrics.FlightRecorderEvents
+ */
+public interface InjectorListener {
+
+    /**
+     * Checked once per operation, the operation is neither measured nor reported while disabled.
+     * Should be cheap, e.g. a field read.
+     */
+    default boolean isEnabled() {
+        return true;
+    }
+
+    /**
+     * Called for every {@link Injector#getInjectableExact(String, Class)}, including the ones
+     * performed by {@link Injector#getInjectable(String, Class)} and the injection itself.
+     *
+     * @param hit   whether the injectable was found, in this injector or its parent
+     * @param nanos duration of the lookup
+     */
+    default void onLookup(String name, Class<?> type, boolean hit, long nanos) {
+    }
+
+    /**
+     * Called when {@link Injector#getInjectable(String, Class)} found no injectable
+     * with the given name and fell back to the type-only lookup.
+     *
+     * @param hit whether the fallback found the injectable
+     */
+    default void onFallback(String name, Class<?> type, boolean hit) {
+    }
+
+    /**
+     * Called when an injection point could not be resolved, before the {@link eu.okaeri.injector.exception.InjectorException} is thrown.
+     *
+     * @param owner class declaring the injection point, {@code null} if unknown
+     */
+    default void onResolutionFailure(Class<?> owner, String name, Class<?> type) {
+    }
+
+    /**
+     * Called before the instance is created using {@link Injector#createInstance(Class)}, followed by
+     * {@link #onCreateInstance(Class, long, long, long)} or {@link #onCreateInstanceFailure(Class, Throwable)}
+     * on the same thread. Not called for {@link OkaeriInjector#createInstanceAsync(Class, java.util.concurrent.Executor)}.
+     */
+    default void onCreateInstanceStart(Class<?> type) {
+    }
+
+    /**
+     * Called after the {@code @PostConstruct} method was invoked on the instance created by this injector.
+     *
+     * @param order order of the method, methods are invoked in ascending order
+     * @param nanos duration of the invocation, including resolution of its parameters
+     */
+    default void onPostConstruct(Class<?> type, Method method, int order, long nanos) {
+    }
+
+    /**
+     * Called when {@link Injector#createInstance(Class)} failed, after {@link #onCreateInstanceStart(Class)}.
+     */
+    default void onCreateInstanceFailure(Class<?> type, Throwable cause) {
+    }
+
+    /**
+     * Called after the instance was created using {@link Injector#createInstance(Class)}.
+     *
+     * @param constructionNanos   duration of the constructor invocation, including resolution of its parameters
+     * @param injectionNanos      duration of the field injection
+     * @param postConstructsNanos duration of the {@code @PostConstruct} invocations
+     */
+    default void onCreateInstance(Class<?> type, long constructionNanos, long injectionNanos, long postConstructsNanos) {
+    }
+
+    /**
+     * Called after the injectable was registered, once per every injectable of the batch.
+     */
+    default void onRegister(Injectable<?> injectable) {
+    }
+
+    /**
+     * @return listener notifying all {@code listeners} in the given order, skipping the ones which are
+     * not {@link #isEnabled()} at the time of the callback
+     */
+    static InjectorListener all(@NonNull InjectorListener... listeners) {
+
+        InjectorListener[] copy = listeners.clone();
+        return new InjectorListener() {
+
+            @Override
+            public boolean isEnabled() {
+                for (InjectorListener listener : copy) {
+                    if (listener.isEnabled()) {
+                        return true;
+                    }
+                }
+                return false;
+            }
+
+            @Override
+            public void onLookup(String name, Class<?> type, boolean hit, long nanos) {
+                for (InjectorListener listener : copy) {
+                    if (listener.isEnabled()) {
+                        listener.onLookup(name, type, hit, nanos);
+                    }
+                }
+            }
+
+            @Override
+            public void onFallback(String name, Class<?> type, boolean hit) {
+                for (InjectorListener listener : copy) {
+                    if (listener.isEnabled()) {
+                        listener.onFallback(name, type, hit);
+                    }
+                }
+            }
+
+            @Override
+            public void onResolutionFailure(Class<?> owner, String name, Class<?> type) {
+                for (InjectorListener listener : copy) {
+                    if (listener.isEnabled()) {
+                        listener.onResolutionFailure(owner, name, type);
+                    }
+                }
+            }
+
+            @Override
+            public void onCreateInstanceStart(Class<?> type) {
+                for (InjectorListener listener : copy) {
+                    if (listener.isEnabled()) {
+                        listener.onCreateInstanceStart(type);
+                    }
+                }
+            }
+
+            @Override
+            public void onPostConstruct(Class<?> type, Method method, int order, long nanos) {
+                for (InjectorListener listener : copy) {
+                    if (listener.isEnabled()) {
+                        listener.onPostConstruct(type, method, order, nanos);
+                    }
+                }
+            }
+
+            @Override
+            public void onCreateInstanceFailure(Class<?> type, Throwable cause) {
+                for (InjectorListener listener : copy) {
+                    if (listener.isEnabled()) {
+                        listener.onCreateInstanceFailure(type, cause);
+                    }
+                }
+            }
+
+            @Override
+            public void onCreateInstance(Class<?> type, long constructionNanos, long injectionNanos, long postConstructsNanos) {
+                for (InjectorListener listener : copy) {
+                    if (listener.isEnabled()) {
+                        listener.onCreateInstance(type, constructionNanos, injectionNanos, postConstructsNanos);
+                    }
+                }
+            }
+
+            @Override
+            public void onRegister(Injectable<?> injectable) {
+                for (InjectorListener listener : copy) {
+                    if (listener.isEnabled()) {
+                        listener.onRegister(injectable);
+                    }
+                }
+            }
+        };
+    }
+}
@@ -0,0 +1,51 @@
+package eu.okaeri.injector;
+
+import lombok.NonNull;
+
+/**
+ * Strategy creating instances of classes without an {@code @Inject} constructor.
+ * <p>
+ * Allocators are asked once per class, the returned {@link Instantiator} is cached and reused
+ * for every instance, so no lookups happen on the allocation path.
+ *
+ * @see OkaeriInjector#setInstanceAllocator(InstanceAllocator)
+ */
+@FunctionalInterface
+public interface InstanceAllocator {
+
+    /**
+     * @return instantiator for the type or {@code null} if this allocator cannot create its instances
+     */
+    Instantiator prepare(@NonNull Class<?> type);
+
+    /**
+     * Public no-args constructor invoked through a method handle.
+     */
+    static InstanceAllocator constructor() {
+        return InstanceAllocators.CONSTRUCTOR;
+    }
+
+    /**
+     * {@code sun.misc.Unsafe#allocateInstance}, creating instances without invoking any constructor.
+     * The handle is resolved once, classes are not supported if {@code Unsafe} is not available.
+     */
+    static InstanceAllocator unsafe() {
+        return InstanceAllocators.UNSAFE;
+    }
+
+    /**
+     * Uses the first allocator supporting the type, selected once per class.
+     */
+    static InstanceAllocator firstOf(@NonNull InstanceAllocator... allocators) {
+        return new InstanceAllocators.FirstOf(allocators.clone());
+    }
+
+    @FunctionalInterface
+    interface Instantiator {
+
+        /**
+         * @throws Throwable thrown by the constructor or the allocation
+         */
+        Object newInstance() throws Throwable;
+    }
+}
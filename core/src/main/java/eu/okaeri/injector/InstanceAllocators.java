@@ -0,0 +1,124 @@
+package eu.okaeri.injector;
+
+import lombok.NonNull;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+
+/**
+ * Built-in {@link InstanceAllocator}s.
+ */
+final class InstanceAllocators {
+
+    private static final MethodType INSTANTIATOR_TYPE = MethodType.methodType(Object.class);
+
+    static final InstanceAllocator CONSTRUCTOR = new FirstOf(new InstanceAllocator[]{InstanceAllocators::constructor});
+    static final InstanceAllocator UNSAFE = new FirstOf(new InstanceAllocator[]{InstanceAllocators::unsafe});
+
+    /**
+     * Defaults of {@link OkaeriInjector}, depending on whether unsafe allocation is allowed.
+     */
+    static final InstanceAllocator DEFAULT = CONSTRUCTOR;
+    static final InstanceAllocator DEFAULT_UNSAFE = new FirstOf(new InstanceAllocator[]{InstanceAllocators::constructor, InstanceAllocators::unsafe});
+
+    private InstanceAllocators() {
+    }
+
+    private static boolean isInstantiable(Class<?> type) {
+        int modifiers = type.getModifiers();
+        return !Modifier.isAbstract(modifiers) && !Modifier.isInterface(modifiers) && !type.isPrimitive() && !type.isArray();
+    }
+
+    private static InstanceAllocator.Instantiator constructor(Class<?> type) {
+
+        if (!isInstantiable(type)) {
+            return null;
+        }
+
+        MethodHandle handle;
+        try {
+            handle = MethodHandles.publicLookup()
+                .findConstructor(type, MethodType.methodType(void.class))
+                .asType(INSTANTIATOR_TYPE);
+        } catch (NoSuchMethodException | IllegalAccessException | RuntimeException exception) {
+            return null;
+        }
+
+        return () -> (Object) handle.invokeExact();
+    }
+
+    private static InstanceAllocator.Instantiator unsafe(Class<?> type) {
+
+        MethodHandle allocateInstance = UnsafeHolder.ALLOCATE_INSTANCE;
+        if ((allocateInstance == null) || !isInstantiable(type)) {
+            return null;
+        }
+
+        MethodHandle handle = MethodHandles.insertArguments(allocateInstance, 0, type).asType(INSTANTIATOR_TYPE);
+        return () -> (Object) handle.invokeExact();
+    }
+
+    /**
+     * {@code Unsafe#allocateInstance(Class)} bound to the {@code Unsafe} instance, resolved on first use.
+     */
+    private static final class UnsafeHolder {
+
+        private static final MethodHandle ALLOCATE_INSTANCE = resolve();
+
+        private static MethodHandle resolve() {
+            try {
+                Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+                Field theUnsafe = unsafeClass.getDeclaredField("theUnsafe");
+                theUnsafe.setAccessible(true);
+                Method allocateInstance = unsafeClass.getMethod("allocateInstance", Class.class);
+                return MethodHandles.lookup().unreflect(allocateInstance).bindTo(theUnsafe.get(null));
+            } catch (ReflectiveOperationException | LinkageError | RuntimeException exception) {
+                return null;
+            }
+        }
+    }
+
+    /**
+     * Selects the first supporting allocator once per class, {@link ClassValue} does not prevent unloading.
+     */
+    static final class FirstOf implements InstanceAllocator {
+
+        private final InstanceAllocator[] allocators;
+        private final ClassValue<Selection> selections = new ClassValue<Selection>() {
+            @Override
+            protected Selection computeValue(Class<?> type) {
+                for (InstanceAllocator allocator : FirstOf.this.allocators) {
+                    Instantiator instantiator = allocator.prepare(type);
+                    if (instantiator != null) {
+                        return new Selection(instantiator);
+                    }
+                }
+                return Selection.NONE;
+            }
+        };
+
+        FirstOf(InstanceAllocator[] allocators) {
+            this.allocators = allocators;
+        }
+
+        @Override
+        public Instantiator prepare(@NonNull Class<?> type) {
+            return this.selections.get(type).instantiator;
+        }
+    }
+
+    private static final class Selection {
+
+        private static final Selection NONE = new Selection(null);
+
+        private final InstanceAllocator.Instantiator instantiator;
+
+        private Selection(InstanceAllocator.Instantiator instantiator) {
+            this.instantiator = instantiator;
+        }
+    }
+}
@@ -0,0 +1,200 @@
+package eu.okaeri.injector;
+
+import java.lang.invoke.CallSite;
+import java.lang.invoke.LambdaMetafactory;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+
+/**
+ * Constructor or method bound by {@link LambdaMetafactory} to a functional interface of its arity.
+ * <p>
+ * The generated implementation calls the member directly, so the call can be inlined, unlike
+ * a {@link MethodHandle} kept in a field, which is not a constant for the JIT. Binding requires
+ * a lookup with full privilege access to the declaring class ({@code MethodHandles#privateLookupIn},
+ * Java 9+ and the same module) and at most {@value #MAX_ARITY} parameters, including the receiver.
+ * Otherwise no invoker is created and reflection should be used instead.
+ */
+final class Invoker {
+
+    static final int MAX_ARITY = 6;
+
+    private static final Class<?>[] CALLS = {Call0.class, Call1.class, Call2.class, Call3.class, Call4.class, Call5.class, Call6.class};
+    private static final Class<?>[] RUNS = {Run0.class, Run1.class, Run2.class, Run3.class, Run4.class, Run5.class, Run6.class};
+
+    private final Object function;
+    private final int arity;
+    private final boolean receiver;
+    private final boolean returnsVoid;
+
+    private Invoker(Object function, int arity, boolean receiver, boolean returnsVoid) {
+        this.function = function;
+        this.arity = arity;
+        this.receiver = receiver;
+        this.returnsVoid = returnsVoid;
+    }
+
+    /**
+     * @return invoker or {@code null} if the method cannot be bound
+     */
+    static Invoker of(Method method) {
+        MethodHandles.Lookup lookup = Lookups.in(method.getDeclaringClass());
+        if (lookup == null) {
+            return null;
+        }
+        try {
+            return bind(lookup, lookup.unreflect(method), !Modifier.isStatic(method.getModifiers()));
+        } catch (Throwable ignored) {
+            return null;
+        }
+    }
+
+    /**
+     * @return invoker or {@code null} if the constructor cannot be bound
+     */
+    static Invoker of(Constructor<?> constructor) {
+        MethodHandles.Lookup lookup = Lookups.in(constructor.getDeclaringClass());
+        if ((lookup == null) || Modifier.isAbstract(constructor.getDeclaringClass().getModifiers())) {
+            return null;
+        }
+        try {
+            return bind(lookup, lookup.unreflectConstructor(constructor), false);
+        } catch (Throwable ignored) {
+            return null;
+        }
+    }
+
+    private static Invoker bind(MethodHandles.Lookup lookup, MethodHandle implementation, boolean receiver) throws Throwable {
+
+        MethodType type = implementation.type();
+        int arity = type.parameterCount();
+        if (arity > MAX_ARITY) {
+            return null;
+        }
+
+        boolean returnsVoid = type.returnType() == void.class;
+        Class<?> functional = (returnsVoid ? RUNS : CALLS)[arity];
+        MethodType erased = MethodType.genericMethodType(arity);
+        MethodType instantiated = type.wrap();
+        if (returnsVoid) {
+            erased = erased.changeReturnType(void.class);
+            instantiated = instantiated.changeReturnType(void.class);
+        }
+
+        String name = returnsVoid ? "run" : "call";
+        CallSite site = LambdaMetafactory.metafactory(lookup, name, MethodType.methodType(functional), erased, implementation, instantiated);
+        return new Invoker(site.getTarget().invoke(), arity, receiver, returnsVoid);
+    }
+
+    /**
+     * Exceptions thrown by the member are wrapped in {@link InvocationTargetException}, like by
+     * {@link Method#invoke(Object, Object...)}, {@link Error}s are rethrown as is.
+     *
+     * @param target     receiver, ignored for static methods and constructors
+     * @param arguments  arguments of the member, not checked for the count
+     * @return value returned by the member, {@code null} for void methods
+     */
+    Object invoke(Object target, Object[] arguments) throws InvocationTargetException {
+        try {
+            if (this.returnsVoid) {
+                this.run(target, arguments);
+                return null;
+            }
+            return this.call(target, arguments);
+        } catch (Error error) {
+            throw error;
+        } catch (Throwable throwable) {
+            throw new InvocationTargetException(throwable);
+        }
+    }
+
+    /**
+     * Rethrows the {@link Error} thrown by a reflectively called member, to match {@link #invoke(Object, Object[])}.
+     *
+     * @return the exception if not caused by an error
+     */
+    static InvocationTargetException rethrowError(InvocationTargetException exception) {
+        if (exception.getCause() instanceof Error) {
+            throw (Error) exception.getCause();
+        }
+        return exception;
+    }
+
+    private Object argument(Object target, Object[] arguments, int index) {
+        return this.receiver ? ((index == 0) ? target : arguments[index - 1]) : arguments[index];
+    }
+
+    private Object call(Object t, Object[] a) {
+        switch (this.arity) {
+            case 0: return ((Call0) this.function).call();
+            case 1: return ((Call1) this.function).call(this.argument(t, a, 0));
+            case 2: return ((Call2) this.function).call(this.argument(t, a, 0), this.argument(t, a, 1));
+            case 3: return ((Call3) this.function).call(this.argument(t, a, 0), this.argument(t, a, 1), this.argument(t, a, 2));
+            case 4: return ((Call4) this.function).call(this.argument(t, a, 0), this.argument(t, a, 1), this.argument(t, a, 2), this.argument(t, a, 3));
+            case 5: return ((Call5) this.function).call(this.argument(t, a, 0), this.argument(t, a, 1), this.argument(t, a, 2), this.argument(t, a, 3), this.argument(t, a, 4));
+            default: return ((Call6) this.function).call(this.argument(t, a, 0), this.argument(t, a, 1), this.argument(t, a, 2), this.argument(t, a, 3), this.argument(t, a, 4), this.argument(t, a, 5));
+        }
+    }
+
+    private void run(Object t, Object[] a) {
+        switch (this.arity) {
+            case 0: ((Run0) this.function).run(); break;
+            case 1: ((Run1) this.function).run(this.argument(t, a, 0)); break;
+            case 2: ((Run2) this.function).run(this.argument(t, a, 0), this.argument(t, a, 1)); break;
+            case 3: ((Run3) this.function).run(this.argument(t, a, 0), this.argument(t, a, 1), this.argument(t, a, 2)); break;
+            case 4: ((Run4) this.function).run(this.argument(t, a, 0), this.argument(t, a, 1), this.argument(t, a, 2), this.argument(t, a, 3)); break;
+            case 5: ((Run5) this.function).run(this.argument(t, a, 0), this.argument(t, a, 1), this.argument(t, a, 2), this.argument(t, a, 3), this.argument(t, a, 4)); break;
+            default: ((Run6) this.function).run(this.argument(t, a, 0), this.argument(t, a, 1), this.argument(t, a, 2), this.argument(t, a, 3), this.argument(t, a, 4), this.argument(t, a, 5));
+        }
+    }
+
+    /**
+     * {@code MethodHandles#privateLookupIn(Class, MethodHandles.Lookup)} resolved once, {@code null} before Java 9.
+     */
+    private static final class Lookups {
+
+        private static final MethodHandle PRIVATE_LOOKUP_IN = resolve();
+
+        private static MethodHandle resolve() {
+            try {
+                Method privateLookupIn = MethodHandles.class.getMethod("privateLookupIn", Class.class, MethodHandles.Lookup.class);
+                return MethodHandles.publicLookup().unreflect(privateLookupIn);
+            } catch (ReflectiveOperationException | RuntimeException exception) {
+                return null;
+            }
+        }
+
+        static MethodHandles.Lookup in(Class<?> type) {
+            if (PRIVATE_LOOKUP_IN == null) {
+                return null;
+            }
+            try {
+                return (MethodHandles.Lookup) PRIVATE_LOOKUP_IN.invokeExact(type, MethodHandles.lookup());
+            } catch (Throwable throwable) {
+                return null;
+            }
+        }
+    }
+
+    // implemented by classes defined in the packages of the bound members, hence public
+
+    public interface Call0 { Object call(); }
+    public interface Call1 { Object call(Object a); }
+    public interface Call2 { Object call(Object a, Object b); }
+    public interface Call3 { Object call(Object a, Object b, Object c); }
+    public interface Call4 { Object call(Object a, Object b, Object c, Object d); }
+    public interface Call5 { Object call(Object a, Object b, Object c, Object d, Object e); }
+    public interface Call6 { Object call(Object a, Object b, Object c, Object d, Object e, Object f); }
+
+    public interface Run0 { void run(); }
+    public interface Run1 { void run(Object a); }
+    public interface Run2 { void run(Object a, Object b); }
+    public interface Run3 { void run(Object a, Object b, Object c); }
+    public interface Run4 { void run(Object a, Object b, Object c, Object d); }
+    public interface Run5 { void run(Object a, Object b, Object c, Object d, Object e); }
+    public interface Run6 { void run(Object a, Object b, Object c, Object d, Object e, Object f); }
+}
@@ -0,0 +1,49 @@
+package eu.okaeri.injector;
+
+import eu.okaeri.injector.exception.InjectorException;
+import lombok.NonNull;
+
+/**
+ * Deferred injection point, resolving the injectable on the first {@link #get()} and reusing it afterwards.
+ * <p>
+ * Resolution is thread-safe and happens at most once, unless it fails with an exception.
+ */
+public final class Lazy<T> implements Provider<T> {
+
+    private final Provider<T> provider;
+    private volatile boolean resolved;
+    private T value;
+
+    private Lazy(Provider<T> provider) {
+        this.provider = provider;
+    }
+
+    public static <T> Lazy<T> of(@NonNull Provider<T> provider) {
+        return new Lazy<>(provider);
+    }
+
+    @Override
+    public T get() throws InjectorException {
+
+        if (this.resolved) {
+            return this.value;
+        }
+
+        synchronized (this) {
+            if (!this.resolved) {
+                this.value = this.provider.get();
+                this.resolved = true;
+            }
+            return this.value;
+        }
+    }
+
+    public boolean isResolved() {
+        return this.resolved;
+    }
+
+    @Override
+    public String toString() {
+        return "Lazy(" + (this.resolved ? String.valueOf(this.value) : "<unresolved>") + ")";
+    }
+}
@@ -0,0 +1,57 @@
+package eu.okaeri.injector;
+
+import eu.okaeri.injector.exception.InjectorException;
+
+import java.util.function.Supplier;
+
+/**
+ * Injectable with the object created on the first resolution.
+ *
+ * @see Injectable#lazy(String, Supplier, Class)
+ */
+final class LazyInjectable<T> extends Injectable<T> {
+
+    private final Lazy<T> object;
+
+    LazyInjectable(String name, Supplier<? extends T> supplier, Class<T> type) {
+        super(name, null, type);
+        this.object = Lazy.of(() -> {
+            T object;
+            try {
+                object = supplier.get();
+            } catch (InjectorException exception) {
+                throw exception;
+            } catch (RuntimeException exception) {
+                throw new InjectorException("Cannot supply injectable " + type + " [" + name + "]", exception);
+            }
+            if (object == null) {
+                throw new InjectorException("Supplier of injectable " + type + " [" + name + "] returned null");
+            }
+            return object;
+        });
+    }
+
+    @Override
+    public T getObject() {
+        return this.object.get();
+    }
+
+    boolean isCreated() {
+        return this.object.isResolved();
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        return this == other;
+    }
+
+    @Override
+    public int hashCode() {
+        return System.identityHashCode(this);
+    }
+
+    @Override
+    public String toString() {
+        return "Injectable(name=" + this.getName() + ", object=" + this.object + ", type=" + this.getType() + ")";
+    }
+}
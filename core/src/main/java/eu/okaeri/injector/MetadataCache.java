@@ -0,0 +1,436 @@
+package eu.okaeri.injector;
+
+import eu.okaeri.injector.exception.InjectorException;
+import lombok.NonNull;
+
+import java.io.*;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.CRC32;
+
+/**
+ * Injection metadata persisted between runs to skip the annotation scans on cold start.
+ * <p>
+ * For every class the cache stores its injection points (constructor, post construct and pre destroy
+ * signatures, {@code @Inject} fields with their name bindings, post construct orders) along with the
+ * checksum of the class file. On the next run members of unchanged classes are looked up directly by their
+ * signatures, classes which changed or cannot be resolved from the cache are scanned again.
+ * <p>
+ * Only one cache is used at a time, by all injectors, for the classes not resolved yet.
+ *
+ * <pre>
+ * MetadataCache cache = MetadataCache.install(Paths.get("injector.cache"));
+ * cache.saveOnShutdown();
+ * </pre>
+ */
+public final class MetadataCache {
+
+    private static final int MAGIC = 0x4F4B4943;
+    private static final int FORMAT = 2;
+
+    private static volatile MetadataCache installed;
+
+    private final Path file;
+    private final Map<String, Metadata> entries;
+
+    private MetadataCache(Path file, Map<String, Metadata> entries) {
+        this.file = file;
+        this.entries = entries;
+    }
+
+    /**
+     * Loads the cache from the file (if it exists and is valid) and uses it for the classes resolved from now on.
+     */
+    public static MetadataCache install(@NonNull Path file) {
+        MetadataCache cache = new MetadataCache(file, read(file));
+        installed = cache;
+        return cache;
+    }
+
+    /**
+     * @return currently installed cache or {@code null}
+     */
+    public static MetadataCache installed() {
+        return installed;
+    }
+
+    public static void uninstall() {
+        installed = null;
+    }
+
+    /**
+     * @return number of cached classes
+     */
+    public int size() {
+        return this.entries.size();
+    }
+
+    /**
+     * Writes all cached metadata to the file, replacing it atomically if supported by the file system.
+     *
+     * @throws InjectorException if the file cannot be written
+     */
+    public void save() throws InjectorException {
+
+        try {
+            // unique per save, processes sharing the file must not write into the same temporary file
+            Path temp = Files.createTempFile(this.file.toAbsolutePath().getParent(), this.file.getFileName().toString(), ".tmp");
+            try {
+                try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+                    out.writeInt(MAGIC);
+                    out.writeInt(FORMAT);
+                    out.writeInt(this.entries.size());
+                    for (Map.Entry<String, Metadata> entry : this.entries.entrySet()) {
+                        writeString(out, entry.getKey());
+                        entry.getValue().write(out);
+                    }
+                }
+                try {
+                    Files.move(temp, this.file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                } catch (AtomicMoveNotSupportedException exception) {
+                    Files.move(temp, this.file, StandardCopyOption.REPLACE_EXISTING);
+                }
+            } finally {
+                Files.deleteIfExists(temp);
+            }
+        } catch (IOException exception) {
+            throw new InjectorException("Cannot save metadata cache to " + this.file, exception);
+        }
+    }
+
+    /**
+     * Saves the cache when the JVM shuts down, failures are ignored.
+     */
+    public MetadataCache saveOnShutdown() {
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            try {
+                this.save();
+            } catch (InjectorException ignored) {
+            }
+        }, "okaeri-injector-metadata-cache"));
+        return this;
+    }
+
+    /**
+     * @return members built from the cached metadata or {@code null} if missing or stale
+     */
+    InjectionPlan.Members resolve(Class<?> type, long checksum) {
+
+        Metadata metadata = this.entries.get(type.getName());
+        if ((metadata == null) || (metadata.checksum != checksum)) {
+            return null;
+        }
+
+        try {
+            return metadata.toMembers(type);
+        } catch (ReflectiveOperationException | LinkageError | RuntimeException exception) {
+            this.entries.remove(type.getName(), metadata);
+            return null;
+        }
+    }
+
+    void store(Class<?> type, InjectionPlan.Members members, long checksum) {
+        this.entries.put(type.getName(), Metadata.of(members, checksum));
+    }
+
+    /**
+     * @return CRC32 of the class file or {@code -1} if it cannot be read, e.g. for generated classes
+     */
+    static long checksum(Class<?> type) {
+
+        ClassLoader classLoader = type.getClassLoader();
+        String resource = type.getName().replace('.', '/') + ".class";
+
+        try (InputStream in = (classLoader == null) ? ClassLoader.getSystemResourceAsStream(resource) : classLoader.getResourceAsStream(resource)) {
+            if (in == null) {
+                return -1;
+            }
+            CRC32 crc = new CRC32();
+            byte[] buffer = new byte[8192];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                crc.update(buffer, 0, read);
+            }
+            return crc.getValue();
+        } catch (IOException exception) {
+            return -1;
+        }
+    }
+
+    private static Map<String, Metadata> read(Path file) {
+
+        Map<String, Metadata> entries = new ConcurrentHashMap<>();
+        if (!Files.isRegularFile(file)) {
+            return entries;
+        }
+
+        // invalid cache is discarded, it is rebuilt during this run
+        // read fully, a mapping stays open until collected and would block replacing the file on Windows
+        try {
+            ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(file));
+            if ((buffer.getInt() != MAGIC) || (buffer.getInt() != FORMAT)) {
+                return entries;
+            }
+            int count = readLength(buffer);
+            for (int i = 0; i < count; i++) {
+                entries.put(readString(buffer), Metadata.read(buffer));
+            }
+        } catch (IOException | RuntimeException exception) {
+            entries.clear();
+        }
+
+        return entries;
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    /**
+     * Reads length or count prefix, every element takes at least one byte, so valid value cannot exceed
+     * the remaining bytes. Checked before allocating to not let a corrupt prefix allocate gigabytes.
+     */
+    private static int readLength(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        if ((length < 0) || (length > buffer.remaining())) {
+            throw new IllegalArgumentException("Invalid length " + length + " with " + buffer.remaining() + " bytes remaining");
+        }
+        return length;
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        byte[] bytes = new byte[readLength(buffer)];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static void writeStrings(DataOutputStream out, String[] values) throws IOException {
+        out.writeInt(values.length);
+        for (String value : values) {
+            writeString(out, value);
+        }
+    }
+
+    private static String[] readStrings(ByteBuffer buffer) {
+        String[] values = new String[readLength(buffer)];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = readString(buffer);
+        }
+        return values;
+    }
+
+    /**
+     * Injection points of a single class, members referenced by their names and parameter types.
+     */
+    private static final class Metadata {
+
+        private final long checksum;
+        private final String[] constructor;
+        private final boolean ambiguousConstructor;
+        private final String[] fields;
+        private final String[] names;
+        private final boolean[] exact;
+        private final String[] postConstructs;
+        private final String[][] postConstructParameters;
+        private final int[] postConstructOrders;
+        private final boolean[] asyncPostConstructs;
+        private final String[] preDestroys;
+        private final String[][] preDestroyParameters;
+
+        private Metadata(long checksum, String[] constructor, boolean ambiguousConstructor, String[] fields, String[] names, boolean[] exact,
+                         String[] postConstructs, String[][] postConstructParameters, int[] postConstructOrders, boolean[] asyncPostConstructs,
+                         String[] preDestroys, String[][] preDestroyParameters) {
+            this.checksum = checksum;
+            this.constructor = constructor;
+            this.ambiguousConstructor = ambiguousConstructor;
+            this.fields = fields;
+            this.names = names;
+            this.exact = exact;
+            this.postConstructs = postConstructs;
+            this.postConstructParameters = postConstructParameters;
+            this.postConstructOrders = postConstructOrders;
+            this.asyncPostConstructs = asyncPostConstructs;
+            this.preDestroys = preDestroys;
+            this.preDestroyParameters = preDestroyParameters;
+        }
+
+        private static Metadata of(InjectionPlan.Members members, long checksum) {
+
+            Constructor<?> constructor = members.getConstructor();
+            InjectionPlan.InjectionField[] fields = members.getFields();
+            Method[] postConstructs = members.getPostConstructs();
+            Method[] preDestroys = members.getPreDestroys();
+
+            String[] fieldNames = new String[fields.length];
+            String[] names = new String[fields.length];
+            boolean[] exact = new boolean[fields.length];
+            for (int i = 0; i < fields.length; i++) {
+                fieldNames[i] = fields[i].getField().getName();
+                names[i] = fields[i].getName();
+                exact[i] = fields[i].isExact();
+            }
+
+            String[] methodNames = new String[postConstructs.length];
+            String[][] methodParameters = new String[postConstructs.length][];
+            for (int i = 0; i < postConstructs.length; i++) {
+                methodNames[i] = postConstructs[i].getName();
+                methodParameters[i] = typeNames(postConstructs[i].getParameterTypes());
+            }
+
+            String[] preDestroyNames = new String[preDestroys.length];
+            String[][] preDestroyParameters = new String[preDestroys.length][];
+            for (int i = 0; i < preDestroys.length; i++) {
+                preDestroyNames[i] = preDestroys[i].getName();
+                preDestroyParameters[i] = typeNames(preDestroys[i].getParameterTypes());
+            }
+
+            return new Metadata(
+                checksum,
+                (constructor == null) ? null : typeNames(constructor.getParameterTypes()),
+                members.isAmbiguousConstructor(),
+                fieldNames,
+                names,
+                exact,
+                methodNames,
+                methodParameters,
+                members.getPostConstructOrders().clone(),
+                members.getAsyncPostConstructs().clone(),
+                preDestroyNames,
+                preDestroyParameters
+            );
+        }
+
+        private InjectionPlan.Members toMembers(Class<?> type) throws ReflectiveOperationException {
+
+            ClassLoader classLoader = type.getClassLoader();
+            Constructor<?> constructor = (this.constructor == null) ? null : type.getConstructor(types(this.constructor, classLoader));
+
+            Field[] fields = new Field[this.fields.length];
+            for (int i = 0; i < fields.length; i++) {
+                fields[i] = type.getDeclaredField(this.fields[i]);
+            }
+
+            Method[] postConstructs = new Method[this.postConstructs.length];
+            for (int i = 0; i < postConstructs.length; i++) {
+                postConstructs[i] = type.getDeclaredMethod(this.postConstructs[i], types(this.postConstructParameters[i], classLoader));
+            }
+
+            Method[] preDestroys = new Method[this.preDestroys.length];
+            for (int i = 0; i < preDestroys.length; i++) {
+                preDestroys[i] = type.getDeclaredMethod(this.preDestroys[i], types(this.preDestroyParameters[i], classLoader));
+            }
+
+            return InjectionPlan.create(constructor, this.ambiguousConstructor, fields, this.names, this.exact,
+                postConstructs, this.postConstructOrders.clone(), this.asyncPostConstructs.clone(), preDestroys);
+        }
+
+        private void write(DataOutputStream out) throws IOException {
+
+            out.writeLong(this.checksum);
+            out.writeBoolean(this.constructor != null);
+            if (this.constructor != null) {
+                writeStrings(out, this.constructor);
+            }
+            out.writeBoolean(this.ambiguousConstructor);
+
+            out.writeInt(this.fields.length);
+            for (int i = 0; i < this.fields.length; i++) {
+                writeString(out, this.fields[i]);
+                writeString(out, this.names[i]);
+                out.writeBoolean(this.exact[i]);
+            }
+
+            out.writeInt(this.postConstructs.length);
+            for (int i = 0; i < this.postConstructs.length; i++) {
+                writeString(out, this.postConstructs[i]);
+                writeStrings(out, this.postConstructParameters[i]);
+                out.writeInt(this.postConstructOrders[i]);
+                out.writeBoolean(this.asyncPostConstructs[i]);
+            }
+
+            out.writeInt(this.preDestroys.length);
+            for (int i = 0; i < this.preDestroys.length; i++) {
+                writeString(out, this.preDestroys[i]);
+                writeStrings(out, this.preDestroyParameters[i]);
+            }
+        }
+
+        private static Metadata read(ByteBuffer buffer) {
+
+            long checksum = buffer.getLong();
+            String[] constructor = (buffer.get() != 0) ? readStrings(buffer) : null;
+            boolean ambiguousConstructor = buffer.get() != 0;
+
+            int fieldCount = readLength(buffer);
+            String[] fields = new String[fieldCount];
+            String[] names = new String[fieldCount];
+            boolean[] exact = new boolean[fieldCount];
+            for (int i = 0; i < fieldCount; i++) {
+                fields[i] = readString(buffer);
+                names[i] = readString(buffer);
+                exact[i] = buffer.get() != 0;
+            }
+
+            int methodCount = readLength(buffer);
+            String[] postConstructs = new String[methodCount];
+            String[][] postConstructParameters = new String[methodCount][];
+            int[] postConstructOrders = new int[methodCount];
+            boolean[] asyncPostConstructs = new boolean[methodCount];
+            for (int i = 0; i < methodCount; i++) {
+                postConstructs[i] = readString(buffer);
+                postConstructParameters[i] = readStrings(buffer);
+                postConstructOrders[i] = buffer.getInt();
+                asyncPostConstructs[i] = buffer.get() != 0;
+            }
+
+            int preDestroyCount = readLength(buffer);
+            String[] preDestroys = new String[preDestroyCount];
+            String[][] preDestroyParameters = new String[preDestroyCount][];
+            for (int i = 0; i < preDestroyCount; i++) {
+                preDestroys[i] = readString(buffer);
+                preDestroyParameters[i] = readStrings(buffer);
+            }
+
+            return new Metadata(checksum, constructor, ambiguousConstructor, fields, names, exact,
+                postConstructs, postConstructParameters, postConstructOrders, asyncPostConstructs, preDestroys, preDestroyParameters);
+        }
+
+        private static String[] typeNames(Class<?>[] types) {
+            String[] names = new String[types.length];
+            for (int i = 0; i < types.length; i++) {
+                names[i] = types[i].getName();
+            }
+            return names;
+        }
+
+        private static Class<?>[] types(String[] names, ClassLoader classLoader) throws ClassNotFoundException {
+            Class<?>[] types = new Class<?>[names.length];
+            for (int i = 0; i < names.length; i++) {
+                types[i] = type(names[i], classLoader);
+            }
+            return types;
+        }
+
+        private static Class<?> type(String name, ClassLoader classLoader) throws ClassNotFoundException {
+            switch (name) {
+                case "int": return int.class;
+                case "long": return long.class;
+                case "boolean": return boolean.class;
+                case "double": return double.class;
+                case "float": return float.class;
+                case "short": return short.class;
+                case "byte": return byte.class;
+                case "char": return char.class;
+                default: return Class.forName(name, false, classLoader);
+            }
+        }
+    }
+}
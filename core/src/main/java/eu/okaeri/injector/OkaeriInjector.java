@@ -0,0 +1,1045 @@
+package eu.okaeri.injector;
+
+import eu.okaeri.injector.annotation.Inject;
+import eu.okaeri.injector.exception.InjectorException;
+import eu.okaeri.injector.generated.GeneratedInjector;
+import lombok.AccessLevel;
+import lombok.NonNull;
+import lombok.RequiredArgsConstructor;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.lang.reflect.*;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+@RequiredArgsConstructor(access = AccessLevel.PRIVATE)
+public class OkaeriInjector implements Injector {
+
+    private final InjectableRegistry registry;
+    private final boolean unsafe;
+    private final Injector parent;
+    private volatile boolean generated = true;
+    private volatile boolean compiled;
+    private volatile InjectorListener listener;
+    private volatile DependentIndex dependents;
+    private volatile InstanceAllocator allocator;
+    private final Map<Class<?>, Singleton> singletons = new ConcurrentHashMap<>();
+    private final AtomicLong version = new AtomicLong();
+    private final Set<Reference<Object>> destroyables = ConcurrentHashMap.newKeySet();
+    private final ReferenceQueue<Object> collected = new ReferenceQueue<>();
+    private final AtomicBoolean closed = new AtomicBoolean();
+
+    public static OkaeriInjector create() {
+        return create(false);
+    }
+
+    public static OkaeriInjector create(boolean unsafe) {
+        return new OkaeriInjector(new IndexedInjectableRegistry(), unsafe, null);
+    }
+
+    /**
+     * Creates injector with the registry seeded from {@code injectables}.
+     * <p>
+     * The list is expected to be ordered like {@link #all()}, with the most recently registered first.
+     * It is copied into the registry, later changes to the list are not reflected in the injector.
+     */
+    public static OkaeriInjector create(@NonNull List<Injectable> injectables, boolean unsafe) {
+        List<Injectable> ordered = new ArrayList<>(injectables);
+        Collections.reverse(ordered);
+        InjectableRegistry registry = new IndexedInjectableRegistry();
+        registry.registerAll(InjectableBatch.create().registerAll(ordered).getEntries());
+        return new OkaeriInjector(registry, unsafe, null);
+    }
+
+    /**
+     * Creates child injector, holding only its own registrations and falling back to this
+     * injector for lookups. Resolution works as if the registrations of the child were made
+     * after the ones of the parent: named lookups check the child and then the parent, before
+     * the type-only fallback does the same.
+     * <p>
+     * Children do not copy the registry of the parent and can be simply discarded.
+     * Configuration of the parent is inherited at the time of the creation.
+     */
+    public OkaeriInjector child() {
+        OkaeriInjector child = new OkaeriInjector(new IndexedInjectableRegistry(), this.unsafe, this);
+        child.generated = this.generated;
+        child.compiled = this.compiled;
+        child.listener = this.listener;
+        child.allocator = this.allocator;
+        child.dependents = (this.dependents == null) ? null : new DependentIndex();
+        return child;
+    }
+
+    /**
+     * Creates read-optimized, immutable snapshot of the injectables currently visible from
+     * this injector, including the ones of the parent. Lookups using {@link #getInjectable(String, Class)}
+     * and {@link #getInjectableExact(String, Class)} are lock-free and do not allocate, {@link #allOf(Class)}
+     * and {@link #streamOf(Class)} use precomputed results.
+     * <p>
+     * Frozen injector rejects all modifications, including registration of the values returned from
+     * the {@code @PostConstruct} methods. Use {@link #child()} of the frozen injector for further registrations.
+     * This injector is not affected and remains mutable.
+     */
+    public OkaeriInjector freeze() {
+        OkaeriInjector frozen = new OkaeriInjector(FrozenInjectableRegistry.of(this.all()), this.unsafe, null);
+        frozen.generated = this.generated;
+        frozen.compiled = this.compiled;
+        frozen.listener = this.listener;
+        frozen.allocator = this.allocator;
+        return frozen;
+    }
+
+    /**
+     * Limits the number of evictable injectables (e.g. {@link Injectable#evictable(String, Object, Class)}) registered
+     * in this injector, the oldest ones are evicted first. Unlimited by default.
+     *
+     * @throws InjectorException if this injector is frozen
+     */
+    public OkaeriInjector setEvictableLimit(int limit) throws InjectorException {
+        if (limit < 0) {
+            throw new InjectorException("Evictable limit cannot be negative: " + limit);
+        }
+        this.registry.setEvictableLimit(limit);
+        this.version.incrementAndGet();
+        return this;
+    }
+
+    public boolean isFrozen() {
+        return this.registry instanceof FrozenInjectableRegistry;
+    }
+
+    /**
+     * @return parent of this injector or {@code null} if not created using {@link #child()}
+     */
+    public Injector getParent() {
+        return this.parent;
+    }
+
+    /**
+     * Controls whether injectors generated at build time by the okaeri-injector-processor
+     * are used when available on the classpath. Enabled by default.
+     */
+    public OkaeriInjector setGenerated(boolean generated) {
+        this.generated = generated;
+        return this;
+    }
+
+    public boolean isGenerated() {
+        return this.generated;
+    }
+
+    /**
+     * Controls whether {@code @Inject} constructors and {@code @PostConstruct} methods of classes without
+     * a generated injector are called through classes bound by {@link java.lang.invoke.LambdaMetafactory}
+     * instead of reflection. Binding happens once per class on first use, members which cannot be bound
+     * (e.g. on Java 8, in other modules or with more than {@value Invoker#MAX_ARITY} parameters including
+     * the receiver) and fields are still handled reflectively. Disabled by default.
+     */
+    public OkaeriInjector setCompiled(boolean compiled) {
+        this.compiled = compiled;
+        return this;
+    }
+
+    public boolean isCompiled() {
+        return this.compiled;
+    }
+
+    /**
+     * Sets listener notified about lookups, created instances and registrations, {@code null} to disable.
+     * Without the listener, or while it is not {@link InjectorListener#isEnabled() enabled}, nothing is measured.
+     *
+     * @see eu.okaeri.injector.metrics.InjectorMetrics
+     */
+    public OkaeriInjector setListener(InjectorListener listener) {
+        this.listener = listener;
+        return this;
+    }
+
+    public InjectorListener getListener() {
+        return this.listener;
+    }
+
+    private InjectorListener activeListener() {
+        InjectorListener listener = this.listener;
+        return ((listener == null) || !listener.isEnabled()) ? null : listener;
+    }
+
+    /**
+     * Controls whether field injections are tracked to keep the injected instances up to date. Disabled by default.
+     * <p>
+     * When enabled, instances injected by this injector are referenced weakly along with the injectables
+     * their {@code @Inject} fields received. Registering, replacing (e.g. {@link #registerExclusive(String, Object)})
+     * or removing injectables in this injector re-injects only the fields which now resolve to a different
+     * injectable, in time proportional to the number of affected fields. Fields which can no longer be resolved
+     * keep their value. Deferred injection points, constructor parameters and static fields are not tracked,
+     * post constructs are not invoked again. Changes of the parent injector are not tracked. Fields are injected
+     * reflectively instead of using the generated injectors, recording the injectables they received.
+     * <p>
+     * Fields are updated on the thread changing the registry, without synchronization with their readers.
+     */
+    public OkaeriInjector setHotSwap(boolean hotSwap) {
+        this.dependents = hotSwap ? ((this.dependents == null) ? new DependentIndex() : this.dependents) : null;
+        return this;
+    }
+
+    public boolean isHotSwap() {
+        return this.dependents != null;
+    }
+
+    private void reinject(Collection<Injectable> removed, Collection<Injectable> added) {
+        DependentIndex dependents = this.dependents;
+        if (dependents != null) {
+            dependents.reinject(this, removed, added);
+        }
+    }
+
+    /**
+     * Sets strategy creating instances of classes without an {@code @Inject} constructor, {@code null} to use the default:
+     * public no-args constructor, falling back to {@link InstanceAllocator#unsafe()} if this injector was created as unsafe.
+     */
+    public OkaeriInjector setInstanceAllocator(InstanceAllocator allocator) {
+        this.allocator = allocator;
+        return this;
+    }
+
+    public InstanceAllocator getInstanceAllocator() {
+        InstanceAllocator allocator = this.allocator;
+        if (allocator != null) {
+            return allocator;
+        }
+        return this.unsafe ? InstanceAllocators.DEFAULT_UNSAFE : InstanceAllocators.DEFAULT;
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> T allocate(Class<T> clazz) throws InjectorException {
+
+        InstanceAllocator.Instantiator instantiator = this.getInstanceAllocator().prepare(clazz);
+        if (instantiator == null) {
+            throw new InjectorException("Cannot " + (this.unsafe ? "(unsafe) " : "") + "initialize new instance of " + clazz);
+        }
+
+        try {
+            return (T) instantiator.newInstance();
+        } catch (Throwable throwable) {
+            throw new InjectorException("Cannot " + (this.unsafe ? "(unsafe) " : "") + "initialize new instance of " + clazz, throwable);
+        }
+    }
+
+    /**
+     * @return view of all injectables, most recently registered first, including the ones of the parent
+     */
+    @Override
+    public List<Injectable> all() {
+
+        List<Injectable> own = this.registry.all();
+        if (this.parent == null) {
+            return own;
+        }
+
+        List<Injectable> inherited = this.parent.all();
+        if (own.isEmpty()) {
+            return inherited;
+        }
+
+        List<Injectable> all = new ArrayList<>(own.size() + inherited.size());
+        all.addAll(own);
+        all.addAll(inherited);
+        return Collections.unmodifiableList(all);
+    }
+
+    @Override
+    public Stream<Injectable> stream() {
+        return this.all().stream();
+    }
+
+    /**
+     * Removes matching injectables of this injector, the parent is not affected.
+     */
+    @Override
+    public void removeIf(@NonNull Predicate<Injectable> filter) {
+        Collection<Injectable> removed = this.registry.removeIf(filter);
+        this.version.incrementAndGet();
+        this.reinject(removed, Collections.emptyList());
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> List<Injectable<T>> allOf(@NonNull Class<T> type) {
+
+        List own = this.registry.allOf(type);
+        if (this.parent == null) {
+            return own;
+        }
+
+        List<Injectable<T>> inherited = this.parent.allOf(type);
+        if (own.isEmpty()) {
+            return inherited;
+        }
+
+        List<Injectable<T>> all = new ArrayList<>(own.size() + inherited.size());
+        all.addAll(own);
+        all.addAll(inherited);
+        return Collections.unmodifiableList(all);
+    }
+
+    @Override
+    public <T> Stream<Injectable<T>> streamInjectableOf(@NonNull Class<T> type) {
+        return this.allOf(type).stream();
+    }
+
+    @Override
+    public <T> Stream<T> streamOf(@NonNull Class<T> type) {
+        return this.streamInjectableOf(type).map(Injectable::getObject);
+    }
+
+    @Override
+    public <T> Injector registerInjectable(@NonNull String name, @NonNull T object, @NonNull Class<T> type) throws InjectorException {
+        return this.register(Injectable.of(name, object, type));
+    }
+
+    @Override
+    public <T> Injector registerLazy(@NonNull String name, @NonNull Supplier<? extends T> supplier, @NonNull Class<T> type) throws InjectorException {
+        return this.register(Injectable.lazy(name, supplier, type));
+    }
+
+    @Override
+    public Injector register(@NonNull Injectable<?> injectable) throws InjectorException {
+
+        this.registry.register(injectable);
+        this.version.incrementAndGet();
+        this.reinject(Collections.emptyList(), Collections.singletonList(injectable));
+
+        InjectorListener listener = this.activeListener();
+        if (listener != null) {
+            listener.onRegister(injectable);
+        }
+
+        return this;
+    }
+
+    @Override
+    public Injector registerAll(@NonNull InjectableBatch batch) throws InjectorException {
+
+        List<InjectableBatch.Entry> entries = batch.getEntries();
+        Collection<Injectable> removed = this.registry.registerAll(entries);
+        this.version.incrementAndGet();
+        if (this.dependents != null) {
+            this.reinject(removed, entries.stream().map(InjectableBatch.Entry::getInjectable).collect(Collectors.toList()));
+        }
+
+        InjectorListener listener = this.activeListener();
+        if (listener != null) {
+            for (InjectableBatch.Entry entry : entries) {
+                listener.onRegister(entry.getInjectable());
+            }
+        }
+
+        return this;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> Injector registerExclusive(@NonNull String name, @NonNull T object) throws InjectorException {
+        return this.registerExclusive(Injectable.of(name, object, (Class<T>) object.getClass()), InjectableBatch.Exclusion.RELATED);
+    }
+
+    @Override
+    public <T> Injector registerExclusive(@NonNull String name, @NonNull T object, @NonNull Class<T> type) throws InjectorException {
+        return this.registerExclusive(Injectable.of(name, object, type), InjectableBatch.Exclusion.SUBTYPES);
+    }
+
+    private Injector registerExclusive(Injectable<?> injectable, InjectableBatch.Exclusion exclusion) throws InjectorException {
+
+        Collection<Injectable> removed = this.registry.registerExclusive(injectable, exclusion);
+        this.version.incrementAndGet();
+        this.reinject(removed, Collections.singletonList(injectable));
+
+        InjectorListener listener = this.activeListener();
+        if (listener != null) {
+            listener.onRegister(injectable);
+        }
+
+        return this;
+    }
+
+    @Override
+    public <T> Optional<? extends Injectable<T>> getInjectable(@NonNull String name, @NonNull Class<T> type) {
+
+        // returned as is, registries may return cached optionals
+        Optional<? extends Injectable<T>> injectable = this.getInjectableExact(name, type);
+        if (injectable.isPresent() || name.isEmpty()) {
+            return injectable;
+        }
+
+        // search for type only
+        Optional<? extends Injectable<T>> fallback = this.getInjectableExact("", type);
+        InjectorListener listener = this.activeListener();
+        if (listener != null) {
+            listener.onFallback(name, type, fallback.isPresent());
+        }
+        return fallback;
+    }
+
+    @Override
+    public <T> Optional<? extends Injectable<T>> getInjectableExact(@NonNull String name, @NonNull Class<T> type) {
+
+        InjectorListener listener = this.activeListener();
+        if (listener == null) {
+            return this.lookup(name, type);
+        }
+
+        long start = System.nanoTime();
+        Optional<? extends Injectable<T>> injectable = this.lookup(name, type);
+        listener.onLookup(name, type, injectable.isPresent(), System.nanoTime() - start);
+        return injectable;
+    }
+
+    private <T> Optional<? extends Injectable<T>> lookup(String name, Class<T> type) {
+
+        Optional<? extends Injectable<T>> injectable = this.registry.lookup(name, type);
+        if (injectable.isPresent() || (this.parent == null)) {
+            return injectable;
+        }
+
+        // do not report the lookup twice
+        return (this.parent instanceof OkaeriInjector)
+            ? ((OkaeriInjector) this.parent).lookup(name, type)
+            : this.parent.getInjectableExact(name, type);
+    }
+
+    @Override
+    public <T> T createInstance(@NonNull Class<T> clazz) throws InjectorException {
+
+        InjectionPlan plan = InjectionPlan.of(clazz);
+        if (plan.isAmbiguousConstructor()) {
+            throw new InjectorException("Type should not have multiple constructors annotated with @Inject: " + clazz);
+        }
+
+        InjectorListener listener = this.activeListener();
+        if (listener == null) {
+            return this.createInstance(clazz, plan, null);
+        }
+
+        listener.onCreateInstanceStart(clazz);
+        try {
+            return this.createInstance(clazz, plan, listener);
+        } catch (RuntimeException | Error throwable) {
+            listener.onCreateInstanceFailure(clazz, throwable);
+            throw throwable;
+        }
+    }
+
+    private <T> T createInstance(Class<T> clazz, InjectionPlan plan, InjectorListener listener) throws InjectorException {
+
+        long start = (listener == null) ? 0L : System.nanoTime();
+
+        GeneratedInjector<T> generated = this.generated(plan);
+
+        // create instance
+        T instance = this.construct(clazz, plan, generated);
+        this.track(plan, instance);
+        long constructed = (listener == null) ? 0L : System.nanoTime();
+
+        // inject fields
+        this.injectFields(instance, plan, generated);
+        long injected = (listener == null) ? 0L : System.nanoTime();
+
+        // dispatch post constructs, one by one when measured
+        if ((generated != null) && (listener == null)) {
+            generated.invokePostConstructs(this, instance);
+        } else {
+            this.invokePostConstructs(instance, plan);
+        }
+
+        if (listener != null) {
+            listener.onCreateInstance(clazz, constructed - start, injected - constructed, System.nanoTime() - injected);
+        }
+
+        // ready to go!
+        return instance;
+    }
+
+    /**
+     * Creates instance using executor selected for the runtime: a new virtual thread per task
+     * when supported, {@link ForkJoinPool#commonPool()} otherwise.
+     *
+     * @see #createInstanceAsync(Class, Executor)
+     */
+    public <T> CompletableFuture<T> createInstanceAsync(@NonNull Class<T> clazz) {
+        return this.createInstanceAsync(clazz, AsyncExecutor.INSTANCE);
+    }
+
+    /**
+     * Creates instance on the {@code executor}, same as {@link #createInstance(Class)} except for the
+     * {@link eu.okaeri.injector.annotation.PostConstruct#async()} methods, which are submitted to the
+     * {@code executor} and run concurrently with other methods of the same order. Orders are still
+     * processed one after another and returned values are registered as injectables.
+     *
+     * @return future completed with the instance after all post constructs have completed,
+     * or exceptionally with {@link InjectorException} as the cause
+     */
+    public <T> CompletableFuture<T> createInstanceAsync(@NonNull Class<T> clazz, @NonNull Executor executor) {
+
+        InjectionPlan plan = InjectionPlan.of(clazz);
+        if (!plan.isAsynchronous()) {
+            return CompletableFuture.supplyAsync(() -> this.createInstance(clazz), executor);
+        }
+
+        InjectorListener listener = this.activeListener();
+        long[] timings = new long[3];
+
+        return CompletableFuture.supplyAsync(() -> {
+
+            if (plan.isAmbiguousConstructor()) {
+                throw new InjectorException("Type should not have multiple constructors annotated with @Inject: " + clazz);
+            }
+
+            timings[0] = (listener == null) ? 0L : System.nanoTime();
+            GeneratedInjector<T> generated = this.generated(plan);
+
+            T instance = this.construct(clazz, plan, generated);
+            this.track(plan, instance);
+            timings[1] = (listener == null) ? 0L : System.nanoTime();
+
+            this.injectFields(instance, plan, generated);
+            timings[2] = (listener == null) ? 0L : System.nanoTime();
+            return instance;
+
+        }, executor).thenCompose(instance -> {
+
+            // generated injectors invoke post constructs serially
+            CompletableFuture<T> future = CompletableFuture.completedFuture(instance);
+
+            int[] orders = plan.getPostConstructOrders();
+            for (int from = 0, to; from < orders.length; from = to) {
+                to = from + 1;
+                while ((to < orders.length) && (orders[to] == orders[from])) {
+                    to++;
+                }
+                int groupFrom = from;
+                int groupTo = to;
+                future = future.thenCompose(ignored -> this.invokePostConstructs(instance, plan, groupFrom, groupTo, executor));
+            }
+
+            if (listener == null) {
+                return future;
+            }
+
+            return future.thenApply(created -> {
+                listener.onCreateInstance(clazz, timings[1] - timings[0], timings[2] - timings[1], System.nanoTime() - timings[2]);
+                return created;
+            });
+        });
+    }
+
+    /**
+     * Invokes post constructs of the same order, async ones on the executor and the rest on the current thread.
+     */
+    private <T> CompletableFuture<T> invokePostConstructs(T instance, InjectionPlan plan, int from, int to, Executor executor) {
+
+        boolean[] async = plan.getAsyncPostConstructs();
+        List<CompletableFuture<?>> futures = new ArrayList<>();
+
+        for (int i = from; i < to; i++) {
+            if (async[i]) {
+                int index = i;
+                futures.add(CompletableFuture.runAsync(() -> this.invokePostConstruct(instance, plan, index), executor));
+            }
+        }
+
+        for (int i = from; i < to; i++) {
+            if (!async[i]) {
+                this.invokePostConstruct(instance, plan, i);
+            }
+        }
+
+        return CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).thenApply(ignored -> instance);
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> T construct(Class<T> clazz, InjectionPlan plan, GeneratedInjector<T> generated) throws InjectorException {
+
+        if (generated != null) {
+            T instance = generated.newInstance(this);
+            return (instance == null) ? this.allocate(clazz) : instance;
+        }
+
+        if (plan.getConstructor() == null) {
+            // create instance using default constructor
+            return this.allocate(clazz);
+        }
+
+        // try invoking constructor
+        Invoker invoker = this.compiled ? plan.invokers().getConstructor() : null;
+        return (T) this.invoke(plan.getConstructor(), plan.getConstructorParameters(), invoker);
+    }
+
+    private <T> void injectFields(T instance, InjectionPlan plan, GeneratedInjector<T> generated) throws InjectorException {
+
+        DependentIndex dependents = this.dependents;
+        if (dependents != null) {
+            Injectable<?>[] resolved = new Injectable<?>[plan.getFields().length];
+            this.injectFieldsReflectively(instance, plan, resolved);
+            dependents.record(instance, plan, resolved);
+            return;
+        }
+
+        if (generated != null) {
+            generated.injectFields(this, instance);
+        } else {
+            this.injectFieldsReflectively(instance, plan, null);
+        }
+    }
+
+    /**
+     * Same as {@link #getOrCreate(Class, boolean)} without registering the instance.
+     */
+    public <T> T getOrCreate(@NonNull Class<T> clazz) throws InjectorException {
+        return this.getOrCreate(clazz, false);
+    }
+
+    /**
+     * Returns the instance of {@code clazz} created by this injector using {@link #createInstance(Class)},
+     * creating it on the first call. Concurrent calls for the same class wait for the single in-flight
+     * creation, calls for different classes do not block each other.
+     * <p>
+     * Failed creation is not memoized, the next call tries again.
+     *
+     * @param register whether to register created instance as an unnamed injectable of {@code clazz}
+     * @throws InjectorException if the creation fails or the class is requested again during its own creation
+     */
+    public <T> T getOrCreate(@NonNull Class<T> clazz, boolean register) throws InjectorException {
+
+        Singleton singleton = this.singletons.get(clazz);
+        if (singleton == null) {
+            Singleton created = new Singleton(Thread.currentThread());
+            singleton = this.singletons.putIfAbsent(clazz, created);
+            if (singleton == null) {
+                return clazz.cast(this.createSingleton(clazz, created, register));
+            }
+        }
+
+        if (!singleton.future.isDone() && (singleton.owner == Thread.currentThread())) {
+            throw new InjectorException("Singleton of " + clazz + " requested during its own creation");
+        }
+
+        try {
+            return clazz.cast(singleton.future.join());
+        } catch (CompletionException exception) {
+            throw new InjectorException("Failed to create singleton of " + clazz, exception.getCause());
+        }
+    }
+
+    private <T> T createSingleton(Class<T> clazz, Singleton singleton, boolean register) {
+        try {
+            T instance = this.createInstance(clazz);
+            if (register) {
+                this.registerInjectable("", instance, clazz);
+            }
+            singleton.future.complete(instance);
+            return instance;
+        } catch (Throwable throwable) {
+            this.singletons.remove(clazz, singleton);
+            singleton.future.completeExceptionally(throwable);
+            throw throwable;
+        }
+    }
+
+    private void track(InjectionPlan plan, Object instance) {
+        if (plan.isDestroyable()) {
+            // weakly, instances dropped by the application are not kept until the shutdown
+            this.expunge();
+            this.destroyables.add(new WeakReference<>(instance, this.collected));
+        }
+    }
+
+    /**
+     * Forgets the collected instances.
+     */
+    private void expunge() {
+        for (Reference<?> reference; (reference = this.collected.poll()) != null; ) {
+            this.destroyables.remove(reference);
+        }
+    }
+
+    /**
+     * Shuts down using the same executor as {@link #createInstanceAsync(Class)}
+     * and the timeout of 30 seconds per component.
+     *
+     * @see #shutdown(Executor, Duration)
+     */
+    @Override
+    public void close() throws InjectorException {
+        this.shutdown(AsyncExecutor.INSTANCE);
+    }
+
+    /**
+     * @see #shutdown(Executor, Duration)
+     */
+    public void shutdown(@NonNull Executor executor) throws InjectorException {
+        this.shutdown(executor, Duration.ofSeconds(30));
+    }
+
+    /**
+     * Invokes {@link eu.okaeri.injector.annotation.PreDestroy} methods of the instances created by this injector
+     * and objects of the injectables registered in this injector (but not in the parent or the children), once.
+     * Created instances are tracked weakly: instances no longer reachable by the application are not destroyed.
+     * <p>
+     * Components are destroyed in the reverse dependency order derived from their {@code @Inject} wiring:
+     * a component is destroyed after all components depending on it. Independent components are destroyed
+     * in parallel on the {@code executor}. Components exceeding the {@code timeout} are not waited for
+     * by their dependencies. Subsequent calls do nothing.
+     *
+     * @throws InjectorException if any of the methods failed or timed out, after all components were processed
+     */
+    public void shutdown(@NonNull Executor executor, @NonNull Duration timeout) throws InjectorException {
+
+        if (!this.closed.compareAndSet(false, true)) {
+            return;
+        }
+
+        Set<Object> components = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (Iterator<Reference<Object>> iterator = this.destroyables.iterator(); iterator.hasNext(); ) {
+            Object instance = iterator.next().get();
+            iterator.remove();
+            if (instance != null) {
+                components.add(instance);
+            }
+        }
+
+        for (Injectable injectable : this.registry.all()) {
+            if (Shutdown.isCreated(injectable)) {
+                Object object = injectable.getObject();
+                if ((object != null) && Shutdown.isDestroyable(object)) {
+                    components.add(object);
+                }
+            }
+        }
+
+        Shutdown.run(this, new ArrayList<>(components), executor, timeout);
+    }
+
+    private static final class AsyncExecutor {
+
+        private static final Executor INSTANCE = create();
+
+        private static Executor create() {
+            try {
+                return (Executor) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+            } catch (ReflectiveOperationException | RuntimeException ignored) {
+                return ForkJoinPool.commonPool();
+            }
+        }
+    }
+
+    @RequiredArgsConstructor
+    private static final class Singleton {
+        private final Thread owner;
+        private final CompletableFuture<Object> future = new CompletableFuture<>();
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> GeneratedInjector<T> generated(InjectionPlan plan) {
+        return this.generated ? (GeneratedInjector<T>) plan.getGenerated() : null;
+    }
+
+    /**
+     * Analyzes dependencies between the components without instantiating anything.
+     *
+     * @see ComponentGraph#analyze(Injector, Collection)
+     */
+    public ComponentGraph analyze(@NonNull Collection<? extends Class<?>> classes) throws InjectorException {
+        return ComponentGraph.analyze(this, classes);
+    }
+
+    /**
+     * Analyzes dependencies between the indexed components using the build-time index.
+     *
+     * @see ComponentGraph#analyze(Injector, ComponentIndex)
+     */
+    public ComponentGraph analyze(@NonNull ComponentIndex index) throws InjectorException {
+        return ComponentGraph.analyze(this, index);
+    }
+
+    /**
+     * Creates all components listed in the build-time {@link ComponentIndex} of the class loader using {@link ForkJoinPool#commonPool()}.
+     *
+     * @see #createIndexedComponents(ClassLoader, Executor)
+     */
+    public Map<Class<?>, Object> createIndexedComponents(@NonNull ClassLoader classLoader) throws InjectorException {
+        return this.createIndexedComponents(classLoader, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Creates all components listed in the build-time {@link ComponentIndex} of the class loader,
+     * without scanning the classpath. The creation order is derived from the indexed dependencies,
+     * components with generated injectors are then created without reflection. Use
+     * {@link ComponentIndex#load(ClassLoader)} and {@link #createInstances(Collection, Executor)}
+     * to create only some of them.
+     *
+     * @see #createInstances(Collection, Executor)
+     */
+    public Map<Class<?>, Object> createIndexedComponents(@NonNull ClassLoader classLoader, @NonNull Executor executor) throws InjectorException {
+        return this.createInstances(this.analyze(ComponentIndex.load(classLoader)), executor);
+    }
+
+    /**
+     * Creates components using {@link ForkJoinPool#commonPool()}.
+     *
+     * @see #createInstances(Collection, Executor)
+     */
+    public Map<Class<?>, Object> createInstances(@NonNull Collection<? extends Class<?>> classes) throws InjectorException {
+        return this.createInstances(classes, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Creates components in the dependency order, registering each as an unnamed injectable of its class.
+     * <p>
+     * The graph is validated before anything is instantiated. Components that do not depend
+     * on each other are created in parallel on the {@code executor}, wave after wave.
+     *
+     * @return created components in the iteration order of {@code classes}
+     * @throws InjectorException if dependencies are missing, form a cycle or any component fails to be created
+     */
+    public Map<Class<?>, Object> createInstances(@NonNull Collection<? extends Class<?>> classes, @NonNull Executor executor) throws InjectorException {
+        return this.createInstances(this.analyze(classes), executor);
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<Class<?>, Object> createInstances(ComponentGraph graph, Executor executor) throws InjectorException {
+
+        Map<Class<?>, Object> instances = new ConcurrentHashMap<>();
+
+        for (List<Class<?>> wave : graph.getWaves()) {
+
+            if (wave.size() == 1) {
+                Class<Object> component = (Class<Object>) wave.get(0);
+                Object instance = this.createInstance(component);
+                this.registerInjectable("", instance, component);
+                instances.put(component, instance);
+                continue;
+            }
+
+            CompletableFuture<?>[] futures = wave.stream()
+                .map(component -> CompletableFuture.runAsync(() -> {
+                    Object instance = this.createInstance(component);
+                    this.registerInjectable("", instance, (Class<Object>) component);
+                    instances.put(component, instance);
+                }, executor))
+                .toArray(CompletableFuture[]::new);
+
+            try {
+                CompletableFuture.allOf(futures).join();
+            } catch (CompletionException exception) {
+                throw new InjectorException("Failed to create components " + wave, exception.getCause());
+            }
+        }
+
+        Map<Class<?>, Object> ordered = new LinkedHashMap<>();
+        for (Class<?> component : graph.getComponents()) {
+            ordered.put(component, instances.get(component));
+        }
+
+        return Collections.unmodifiableMap(ordered);
+    }
+
+    @Override
+    public <T> T invokePostConstructs(@NonNull T instance) throws InjectorException {
+        InjectionPlan plan = InjectionPlan.of(instance.getClass());
+        GeneratedInjector<T> generated = this.generated(plan);
+        if (generated != null) {
+            generated.invokePostConstructs(this, instance);
+            return instance;
+        }
+        return this.invokePostConstructs(instance, plan);
+    }
+
+    private <T> T invokePostConstructs(T instance, InjectionPlan plan) throws InjectorException {
+
+        for (int i = 0; i < plan.getPostConstructs().length; i++) {
+            this.invokePostConstruct(instance, plan, i);
+        }
+        return instance;
+    }
+
+    private void invokePostConstruct(Object instance, InjectionPlan plan, int index) throws InjectorException {
+
+        Method method = plan.getPostConstructs()[index];
+        Parameter[] parameters = plan.getPostConstructParameters()[index];
+        Invoker invoker = this.compiled ? plan.invokers().getPostConstructs()[index] : null;
+
+        InjectorListener listener = this.activeListener();
+        long start = (listener == null) ? 0L : System.nanoTime();
+
+        try {
+            Object result = this.invoke(instance, method, parameters, invoker);
+            if (listener != null) {
+                listener.onPostConstruct(plan.getType(), method, plan.getPostConstructOrders()[index], System.nanoTime() - start);
+            }
+            if (result != null) {
+                this.registerInjectable(method.getName(), result);
+            }
+        } catch (InjectorException exception) {
+            throw new InjectorException("Failed to invoke @PostConstruct for instance of " + instance.getClass(), exception);
+        }
+    }
+
+    @Override
+    public <T> T injectFields(@NonNull T instance) {
+        InjectionPlan plan = InjectionPlan.of(instance.getClass());
+        GeneratedInjector<T> generated = this.generated(plan);
+        this.injectFields(instance, plan, generated);
+        return instance;
+    }
+
+    /**
+     * @param resolved receives the injectables of the non-deferred fields, may be {@code null}
+     */
+    private <T> T injectFieldsReflectively(T instance, InjectionPlan plan, Injectable<?>[] resolved) {
+
+        InjectionPlan.InjectionField[] fields = plan.getFields();
+        for (int i = 0; i < fields.length; i++) {
+
+            InjectionPlan.InjectionField injectionField = fields[i];
+            Field field = injectionField.getField();
+            Object value;
+
+            if (injectionField.getDeferral() != InjectionPlan.Deferral.NONE) {
+                value = injectionField.getDeferral().create(this, injectionField.getName(), injectionField.getType(), injectionField.isExact());
+            } else {
+                Optional<? extends Injectable<?>> injectableOptional = injectionField.isExact()
+                    ? this.getInjectableExact(injectionField.getName(), field.getType())
+                    : this.getInjectable(injectionField.getName(), field.getType());
+
+                if (!injectableOptional.isPresent()) {
+                    this.resolutionFailure(plan.getType(), injectionField.getName(), field.getType());
+                    throw new InjectorException("cannot resolve " + field.getAnnotation(Inject.class) + " " + field.getType() + " [" + field.getName() + "] in instance of " + plan.getType());
+                }
+
+                value = injectableOptional.get().getObject();
+                if (resolved != null) {
+                    resolved[i] = injectableOptional.get();
+                }
+            }
+
+            try {
+                field.set(instance, value);
+            } catch (IllegalAccessException exception) {
+                throw new InjectorException("cannot inject " + value + " to instance of " + plan.getType(), exception);
+            }
+        }
+
+        return instance;
+    }
+
+    private void resolutionFailure(Class<?> owner, String name, Class<?> type) {
+        InjectorListener listener = this.activeListener();
+        if (listener != null) {
+            listener.onResolutionFailure(owner, name, type);
+        }
+    }
+
+    /**
+     * Counter of the modifications visible from this injector, including the ones of the parent.
+     */
+    long version() {
+        long version = this.version.get();
+        return (this.parent instanceof OkaeriInjector) ? (version + ((OkaeriInjector) this.parent).version()) : version;
+    }
+
+    /**
+     * Prepares method for repeated invocations with injected parameters, see {@link #invoke(Object, Method)}.
+     * Parameters are resolved on the first invocation and reused until injectables of this injector
+     * (or its parent) change.
+     */
+    public PreparedMethod prepare(@NonNull Method method) {
+        method.setAccessible(true);
+        return new PreparedMethod(this, method);
+    }
+
+    /**
+     * Prepares constructor for repeated invocations with injected parameters, see {@link #invoke(Constructor)}.
+     * Parameters are resolved on the first invocation and reused until injectables of this injector
+     * (or its parent) change.
+     */
+    public <T> PreparedConstructor<T> prepare(@NonNull Constructor<T> constructor) {
+        constructor.setAccessible(true);
+        return new PreparedConstructor<>(this, constructor);
+    }
+
+    @Override
+    public Object invoke(@NonNull Constructor constructor) throws InjectorException {
+        constructor.setAccessible(true);
+        return this.invoke(constructor, constructor.getParameters(), null);
+    }
+
+    private Object invoke(Constructor<?> constructor, Parameter[] parameters, Invoker invoker) throws InjectorException {
+
+        Object[] call = this.fillParameters(parameters, true);
+
+        try {
+            return (invoker == null) ? constructor.newInstance(call) : invoker.invoke(null, call);
+        } catch (InstantiationException | IllegalAccessException | InvocationTargetException exception) {
+            throw new InjectorException("Error invoking " + constructor, exception);
+        }
+    }
+
+    @Override
+    public Object invoke(@NonNull Object object, @NonNull Method method) throws InjectorException {
+        method.setAccessible(true);
+        return this.invoke(object, method, method.getParameters(), null);
+    }
+
+    private Object invoke(Object object, Method method, Parameter[] parameters, Invoker invoker) throws InjectorException {
+
+        Object[] call = this.fillParameters(parameters, true);
+
+        try {
+            return (invoker == null) ? method.invoke(object, call) : invoker.invoke(object, call);
+        } catch (Exception exception) {
+            throw new InjectorException("Error invoking " + method, exception);
+        }
+    }
+
+    @Override
+    public Object[] fillParameters(@NonNull Parameter[] parameters, boolean force) throws InjectorException {
+
+        Object[] call = new Object[parameters.length];
+
+        for (int i = 0; i < parameters.length; i++) {
+
+            Parameter param = parameters[i];
+            Class<?> paramType = param.getType();
+            String name = (param.getAnnotation(Inject.class) != null) ? param.getAnnotation(Inject.class).value() : "";
+
+            InjectionPlan.Deferral deferral = InjectionPlan.Deferral.of(paramType);
+            if (deferral != InjectionPlan.Deferral.NONE) {
+                call[i] = deferral.create(this, name, deferral.targetType(paramType, param.getParameterizedType()), false);
+                continue;
+            }
+
+            Optional<? extends Injectable<?>> injectable = this.getInjectable(name, paramType);
+            if (!injectable.isPresent()) {
+                if (force) {
+                    this.resolutionFailure(param.getDeclaringExecutable().getDeclaringClass(), name, paramType);
+                    throw new InjectorException("Cannot fill parameters, no injectable of type " + paramType + " [" + name + "] found");
+                } else {
+                    continue;
+                }
+            }
+
+            call[i] = paramType.cast(injectable.get().getObject());
+        }
+
+        return call;
+    }
+}
@@ -0,0 +1,49 @@
+package eu.okaeri.injector;
+
+import eu.okaeri.injector.exception.InjectorException;
+import lombok.Getter;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationTargetException;
+
+/**
+ * Constructor with injected parameters, reusable and safe to share between threads.
+ * <p>
+ * The constructor is called through an {@link Invoker} when it can be bound, reflectively otherwise.
+ *
+ * @see OkaeriInjector#prepare(Constructor)
+ */
+public final class PreparedConstructor<T> extends PreparedExecutable {
+
+    @Getter
+    private final Constructor<T> constructor;
+    private final Invoker invoker;
+
+    PreparedConstructor(OkaeriInjector injector, Constructor<T> constructor) {
+        super(injector, constructor.getParameters());
+        this.constructor = constructor;
+        this.invoker = Invoker.of(constructor);
+    }
+
+    @SuppressWarnings("unchecked")
+    public T newInstance() throws InjectorException {
+
+        Object[] arguments = this.arguments();
+
+        if (this.invoker == null) {
+            try {
+                return this.constructor.newInstance(arguments);
+            } catch (InvocationTargetException exception) {
+                throw new InjectorException("Error invoking " + this.constructor, Invoker.rethrowError(exception));
+            } catch (Exception exception) {
+                throw new InjectorException("Error invoking " + this.constructor, exception);
+            }
+        }
+
+        try {
+            return (T) this.invoker.invoke(null, arguments);
+        } catch (InvocationTargetException exception) {
+            throw new InjectorException("Error invoking " + this.constructor, exception);
+        }
+    }
+}
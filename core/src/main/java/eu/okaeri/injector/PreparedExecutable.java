@@ -0,0 +1,126 @@
+package eu.okaeri.injector;
+
+import eu.okaeri.injector.annotation.Inject;
+import eu.okaeri.injector.exception.InjectorException;
+import lombok.RequiredArgsConstructor;
+
+import java.lang.reflect.Parameter;
+import java.util.Optional;
+
+/**
+ * Parameter bindings of a prepared method or constructor.
+ * <p>
+ * Arguments are resolved on the first invocation and reused until the registry
+ * of the injector (or its parent) changes. The resolved array is never exposed
+ * nor modified, so it can be shared by concurrent invocations.
+ * <p>
+ * {@link EvictableInjectable}s are bound by the injectable instead of their object, so weak objects
+ * can still be collected. Their liveness is checked on every invocation and the arguments are resolved
+ * again once any of them was evicted, expired or collected.
+ */
+abstract class PreparedExecutable {
+
+    private final OkaeriInjector injector;
+    private final Parameter[] parameters;
+    private volatile Arguments arguments;
+
+    PreparedExecutable(OkaeriInjector injector, Parameter[] parameters) {
+        this.injector = injector;
+        this.parameters = parameters;
+    }
+
+    Object[] arguments() throws InjectorException {
+
+        // read before resolving, so changes made during the resolution invalidate the result
+        long version = this.injector.version();
+
+        Arguments arguments = this.arguments;
+        if ((arguments != null) && (arguments.version == version)) {
+            Object[] values = arguments.values();
+            if (values != null) {
+                return values;
+            }
+        }
+
+        while (true) {
+            arguments = this.resolve(version);
+            this.arguments = arguments;
+            Object[] values = arguments.values();
+            if (values != null) {
+                return values;
+            }
+        }
+    }
+
+    private Arguments resolve(long version) throws InjectorException {
+
+        Object[] values = new Object[this.parameters.length];
+        Injectable<?>[] evictables = null;
+
+        for (int i = 0; i < this.parameters.length; i++) {
+
+            Parameter param = this.parameters[i];
+            Class<?> paramType = param.getType();
+            String name = (param.getAnnotation(Inject.class) != null) ? param.getAnnotation(Inject.class).value() : "";
+
+            InjectionPlan.Deferral deferral = InjectionPlan.Deferral.of(paramType);
+            if (deferral != InjectionPlan.Deferral.NONE) {
+                values[i] = deferral.create(this.injector, name, deferral.targetType(paramType, param.getParameterizedType()), false);
+                continue;
+            }
+
+            Optional<? extends Injectable<?>> injectable = this.injector.getInjectable(name, paramType);
+            if (!injectable.isPresent()) {
+                // same failure as the unprepared invocation
+                this.injector.fillParameters(this.parameters, true);
+                throw new InjectorException("Cannot fill parameters, no injectable of type " + paramType + " [" + name + "] found");
+            }
+
+            if (injectable.get() instanceof EvictableInjectable) {
+                if (evictables == null) {
+                    evictables = new Injectable<?>[this.parameters.length];
+                }
+                evictables[i] = injectable.get();
+                continue;
+            }
+
+            values[i] = paramType.cast(injectable.get().getObject());
+        }
+
+        return new Arguments(version, values, evictables);
+    }
+
+    @RequiredArgsConstructor
+    private static final class Arguments {
+
+        private final long version;
+        private final Object[] values;
+        private final Injectable<?>[] evictables;
+
+        /**
+         * @return arguments or {@code null} if any of the evictable injectables is no longer alive
+         */
+        Object[] values() {
+
+            if (this.evictables == null) {
+                return this.values;
+            }
+
+            Object[] values = this.values.clone();
+            for (int i = 0; i < values.length; i++) {
+                Injectable<?> injectable = this.evictables[i];
+                if (injectable == null) {
+                    continue;
+                }
+                // strongly reachable before the check
+                Object object = injectable.getObject();
+                if ((object == null) || !injectable.isAlive()) {
+                    return null;
+                }
+                values[i] = object;
+            }
+
+            return values;
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package eu.okaeri.injector;
+
+import eu.okaeri.injector.exception.InjectorException;
+import lombok.Getter;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+
+/**
+ * Method with injected parameters, reusable and safe to share between threads.
+ * <p>
+ * The method is called through an {@link Invoker} when it can be bound, reflectively otherwise.
+ *
+ * @see OkaeriInjector#prepare(Method)
+ */
+public final class PreparedMethod extends PreparedExecutable {
+
+    @Getter
+    private final Method method;
+    private final Invoker invoker;
+
+    PreparedMethod(OkaeriInjector injector, Method method) {
+        super(injector, method.getParameters());
+        this.method = method;
+        this.invoker = Invoker.of(method);
+    }
+
+    /**
+     * @param target instance to invoke the method on, ignored for static methods
+     * @return value returned by the method, {@code null} for void methods
+     * @throws InjectorException if the parameters cannot be filled or the method fails,
+     *                           with the {@link InvocationTargetException} as the cause, errors are rethrown
+     */
+    public Object invoke(Object target) throws InjectorException {
+
+        Object[] arguments = this.arguments();
+
+        if (this.invoker == null) {
+            try {
+                return this.method.invoke(target, arguments);
+            } catch (InvocationTargetException exception) {
+                throw new InjectorException("Error invoking " + this.method, Invoker.rethrowError(exception));
+            } catch (Exception exception) {
+                throw new InjectorException("Error invoking " + this.method, exception);
+            }
+        }
+
+        try {
+            return this.invoker.invoke(target, arguments);
+        } catch (InvocationTargetException exception) {
+            throw new InjectorException("Error invoking " + this.method, exception);
+        }
+    }
+}
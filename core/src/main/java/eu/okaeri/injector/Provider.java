@@ -0,0 +1,19 @@
+package eu.okaeri.injector;
+
+import eu.okaeri.injector.exception.InjectorException;
+
+/**
+ * Deferred injection point, resolving the injectable on every {@link #get()}.
+ * <p>
+ * Fields and parameters of this type are not required to be resolvable at the
+ * time of the injection. See {@link Lazy} for the variant resolving only once.
+ */
+@FunctionalInterface
+public interface Provider<T> {
+
+    /**
+     * @return currently registered injectable
+     * @throws InjectorException if no matching injectable is registered
+     */
+    T get() throws InjectorException;
+}
@@ -0,0 +1,248 @@
+package eu.okaeri.injector;
+
+import eu.okaeri.injector.annotation.Inject;
+import eu.okaeri.injector.exception.InjectorException;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.Parameter;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Invokes {@link eu.okaeri.injector.annotation.PreDestroy} methods of the components in the reverse dependency order.
+ * <p>
+ * Dependencies are derived from the wiring of the components: values of their {@code @Inject} fields and injectables
+ * matching their constructor and post construct parameters, followed transitively through objects without pre destroy
+ * methods. Every component is destroyed as soon as all of its dependents are, independent components in parallel,
+ * so the shutdown takes as long as the longest dependency chain. Dependents which exceed the timeout are no longer
+ * waited for. Dependency cycles are broken arbitrarily.
+ */
+final class Shutdown {
+
+    private final OkaeriInjector injector;
+    private final List<Object> components;
+    private final Map<Object, Set<Object>> dependencies = new IdentityHashMap<>();
+    private final Map<Object, Set<Object>> reachable = new IdentityHashMap<>();
+
+    private Shutdown(OkaeriInjector injector, List<Object> components) {
+        this.injector = injector;
+        this.components = components;
+    }
+
+    /**
+     * @param components objects with pre destroy methods, without duplicates
+     * @throws InjectorException if any pre destroy method failed or timed out, after all components were processed
+     */
+    static void run(OkaeriInjector injector, List<Object> components, Executor executor, Duration timeout) throws InjectorException {
+
+        if (components.isEmpty()) {
+            return;
+        }
+
+        Shutdown shutdown = new Shutdown(injector, components);
+        Set<Object> destroyable = Collections.newSetFromMap(new IdentityHashMap<>());
+        destroyable.addAll(components);
+        for (Object component : components) {
+            shutdown.dependencies.put(component, shutdown.dependenciesOf(component, destroyable));
+        }
+
+        shutdown.destroy(executor, timeout);
+    }
+
+    private void destroy(Executor executor, Duration timeout) {
+
+        // dependents first
+        Map<Object, List<Object>> dependents = new IdentityHashMap<>();
+        Map<Object, Integer> remaining = new IdentityHashMap<>();
+        for (Object component : this.components) {
+            remaining.put(component, 0);
+        }
+        for (Object component : this.components) {
+            for (Object dependency : this.dependencies.get(component)) {
+                dependents.computeIfAbsent(dependency, key -> new ArrayList<>()).add(component);
+                remaining.merge(dependency, 1, Integer::sum);
+            }
+        }
+
+        List<Object> order = new ArrayList<>(this.components.size());
+        Deque<Object> ready = new ArrayDeque<>();
+        for (Object component : this.components) {
+            if (remaining.get(component) == 0) {
+                ready.add(component);
+            }
+        }
+        while (!ready.isEmpty()) {
+            Object component = ready.poll();
+            order.add(component);
+            for (Object dependency : this.dependencies.get(component)) {
+                if (remaining.merge(dependency, -1, Integer::sum) == 0) {
+                    ready.add(dependency);
+                }
+            }
+        }
+
+        // cycles, waiting only for the dependents outside of them
+        for (Object component : this.components) {
+            if (remaining.get(component) > 0) {
+                order.add(component);
+            }
+        }
+
+        ScheduledExecutorService timer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "okaeri-injector-shutdown-timer");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        Map<Object, CompletableFuture<Void>> finished = new IdentityHashMap<>();
+        Queue<Throwable> failures = new ConcurrentLinkedQueue<>();
+
+        try {
+            for (Object component : order) {
+
+                List<CompletableFuture<Void>> awaited = new ArrayList<>();
+                for (Object dependent : dependents.getOrDefault(component, Collections.emptyList())) {
+                    CompletableFuture<Void> future = finished.get(dependent);
+                    if (future != null) {
+                        awaited.add(future);
+                    }
+                }
+
+                // completes normally when destroyed, failed or timed out
+                CompletableFuture<Void> done = new CompletableFuture<>();
+                finished.put(component, done);
+
+                CompletableFuture.allOf(awaited.toArray(new CompletableFuture[0])).thenRun(() -> {
+
+                    ScheduledFuture<?> timeoutTask = timer.schedule(() -> {
+                        if (done.complete(null)) {
+                            failures.add(new InjectorException("Timed out after " + timeout.toMillis() + " ms destroying " + component.getClass()));
+                        }
+                    }, timeout.toNanos(), TimeUnit.NANOSECONDS);
+
+                    CompletableFuture.runAsync(() -> this.invokePreDestroys(component), executor).whenComplete((result, throwable) -> {
+                        timeoutTask.cancel(false);
+                        if (done.complete(null) && (throwable != null)) {
+                            failures.add((throwable instanceof CompletionException) ? throwable.getCause() : throwable);
+                        }
+                    });
+                });
+            }
+
+            CompletableFuture.allOf(finished.values().toArray(new CompletableFuture[0])).join();
+        } finally {
+            timer.shutdownNow();
+        }
+
+        if (!failures.isEmpty()) {
+            Iterator<Throwable> iterator = failures.iterator();
+            InjectorException exception = new InjectorException("Failed to destroy " + failures.size() + " of " + this.components.size() + " components", iterator.next());
+            iterator.forEachRemaining(exception::addSuppressed);
+            throw exception;
+        }
+    }
+
+    private void invokePreDestroys(Object component) {
+        for (Method method : InjectionPlan.of(component.getClass()).getPreDestroys()) {
+            this.injector.invoke(component, method);
+        }
+    }
+
+    /**
+     * @return destroyable components the object depends on, directly or through objects without pre destroy methods
+     */
+    private Set<Object> dependenciesOf(Object object, Set<Object> destroyable) {
+
+        Set<Object> found = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (Object dependency : this.wiringOf(object)) {
+            if (dependency == object) {
+                continue;
+            }
+            if (destroyable.contains(dependency)) {
+                found.add(dependency);
+                continue;
+            }
+            found.addAll(this.reachableFrom(dependency, destroyable));
+        }
+
+        found.remove(object);
+        return found;
+    }
+
+    private Set<Object> reachableFrom(Object object, Set<Object> destroyable) {
+
+        Set<Object> cached = this.reachable.get(object);
+        if (cached != null) {
+            return cached;
+        }
+
+        // in progress, cycle of intermediate objects
+        this.reachable.put(object, Collections.emptySet());
+        Set<Object> found = this.dependenciesOf(object, destroyable);
+        this.reachable.put(object, found);
+        return found;
+    }
+
+    /**
+     * @return objects injected into the object, deferred injection points are skipped
+     */
+    private List<Object> wiringOf(Object object) {
+
+        Class<?> type = object.getClass();
+        if (type.isArray() || type.isPrimitive() || type.getName().startsWith("java.")) {
+            return Collections.emptyList();
+        }
+
+        InjectionPlan plan = InjectionPlan.of(type);
+        List<Object> wiring = new ArrayList<>();
+
+        for (InjectionPlan.InjectionField field : plan.getFields()) {
+            if ((field.getDeferral() != InjectionPlan.Deferral.NONE) || Modifier.isStatic(field.getField().getModifiers())) {
+                continue;
+            }
+            try {
+                Object value = field.getField().get(object);
+                if (value != null) {
+                    wiring.add(value);
+                }
+            } catch (IllegalAccessException | RuntimeException ignored) {
+            }
+        }
+
+        if (plan.getConstructor() != null) {
+            this.resolve(plan.getConstructorParameters(), wiring);
+        }
+        for (Parameter[] parameters : plan.getPostConstructParameters()) {
+            this.resolve(parameters, wiring);
+        }
+
+        return wiring;
+    }
+
+    private void resolve(Parameter[] parameters, List<Object> wiring) {
+        for (Parameter parameter : parameters) {
+            if (InjectionPlan.Deferral.of(parameter.getType()) != InjectionPlan.Deferral.NONE) {
+                continue;
+            }
+            Inject inject = parameter.getAnnotation(Inject.class);
+            this.injector.getInjectable((inject == null) ? "" : inject.value(), parameter.getType())
+                .filter(Shutdown::isCreated)
+                .map(Injectable::getObject)
+                .ifPresent(wiring::add);
+        }
+    }
+
+    static boolean isDestroyable(Object object) {
+        Class<?> type = object.getClass();
+        return !type.isArray() && !type.getName().startsWith("java.") && (InjectionPlan.of(type).getPreDestroys().length > 0);
+    }
+
+    /**
+     * @return whether the object of the injectable exists, without creating it
+     */
+    static boolean isCreated(Injectable<?> injectable) {
+        return injectable.isAlive() && (!(injectable instanceof LazyInjectable) || ((LazyInjectable<?>) injectable).isCreated());
+    }
+}
@@ -0,0 +1,31 @@
+package eu.okaeri.injector;
+
+import java.lang.ref.WeakReference;
+
+/**
+ * Injectable referencing its object weakly, removed from the registry after the object is collected.
+ *
+ * @see Injectable#weak(String, Object, Class)
+ */
+final class WeakInjectable<T> extends EvictableInjectable<T> {
+
+    private final WeakReference<T> reference;
+
+    WeakInjectable(String name, T object, Class<T> type) {
+        super(name, null, type);
+        this.reference = new WeakReference<>(object);
+    }
+
+    /**
+     * @return the object or {@code null} if already collected
+     */
+    @Override
+    public T getObject() {
+        return this.reference.get();
+    }
+
+    @Override
+    public boolean isAlive() {
+        return super.isAlive() && (this.reference.get() != null);
+    }
+}
@@ -0,0 +1,20 @@
+package eu.okaeri.injector.annotation;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface PostConstruct {
+
+    int order() default Integer.MAX_VALUE;
+
+    /**
+     * Allows running concurrently with other methods of the same {@link #order()} when the instance
+     * is created using {@code OkaeriInjector#createInstanceAsync}. Methods of the next order start
+     * after all methods of the previous order have completed. Ignored by the synchronous methods.
+     */
+    boolean async() default false;
+}
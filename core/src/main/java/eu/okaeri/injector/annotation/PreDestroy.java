@@ -5,8 +5,13 @@ import java.lang.annotation.Retention;
 import java.lang.annotation.RetentionPolicy;
 import java.lang.annotation.Target;
 
+/**
+ * Marks method invoked when the injector is closed, see {@code OkaeriInjector#shutdown}.
+ * Parameters are resolved the same way as for {@link PostConstruct} methods.
+ */
 @Target(ElementType.METHOD)
 @Retention(RetentionPolicy.RUNTIME)
-public @interface PostConstruct {
+public @interface PreDestroy {
+
     int order() default Integer.MAX_VALUE;
 }
@@ -0,0 +1,53 @@
+package eu.okaeri.injector.generated;
+
+import eu.okaeri.injector.Injector;
+import eu.okaeri.injector.annotation.Inject;
+import eu.okaeri.injector.annotation.PostConstruct;
+import lombok.NonNull;
+
+/**
+ * Injector of a single class generated at build time by the okaeri-injector-processor.
+ * <p>
+ * Implementations are named {@code <BinaryClassName>$$Injector}, are placed in the package
+ * of the injected class and must have a public no-args constructor. When present on the
+ * classpath they are used by {@link eu.okaeri.injector.OkaeriInjector} instead of reflection.
+ */
+public interface GeneratedInjector<T> {
+
+    String SUFFIX = "$$Injector";
+
+    /**
+     * {@link #getFlags()} of injectors generated without them, the class is scanned using reflection instead.
+     */
+    int UNKNOWN_FLAGS = -1;
+    int AMBIGUOUS_CONSTRUCTOR = 1;
+    int ASYNC_POST_CONSTRUCTS = 1 << 1;
+    int PRE_DESTROYS = 1 << 2;
+
+    /**
+     * Properties of the injected class known at build time, so no reflective scan is needed to plan its injection.
+     *
+     * @return combination of {@link #AMBIGUOUS_CONSTRUCTOR}, {@link #ASYNC_POST_CONSTRUCTS} and {@link #PRE_DESTROYS}
+     */
+    default int getFlags() {
+        return UNKNOWN_FLAGS;
+    }
+
+    /**
+     * Creates new instance using the constructor annotated with {@link Inject} or the default constructor.
+     *
+     * @return new instance or {@code null} if it cannot be created by the generated code
+     */
+    T newInstance(@NonNull Injector injector);
+
+    /**
+     * Injects fields annotated with {@link Inject}, in the declaration order.
+     */
+    void injectFields(@NonNull Injector injector, @NonNull T instance);
+
+    /**
+     * Invokes methods annotated with {@link PostConstruct} sorted by {@link PostConstruct#order()}
+     * and registers their non-null results as injectables named after the method.
+     */
+    void invokePostConstructs(@NonNull Injector injector, @NonNull T instance);
+}
@@ -0,0 +1,150 @@
+package eu.okaeri.injector.generated;
+
+import eu.okaeri.injector.Injectable;
+import eu.okaeri.injector.Injector;
+import eu.okaeri.injector.InjectorListener;
+import eu.okaeri.injector.Lazy;
+import eu.okaeri.injector.OkaeriInjector;
+import eu.okaeri.injector.Provider;
+import eu.okaeri.injector.annotation.Inject;
+import eu.okaeri.injector.exception.InjectorException;
+import lombok.NonNull;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.Optional;
+
+/**
+ * Runtime support for the generated injectors.
+ * <p>
+ * Resolution rules and error messages are the same as in {@link eu.okaeri.injector.OkaeriInjector}.
+ * Private members are still accessed using reflection, resolved once per generated class.
+ */
+public final class GeneratedInjectors {
+
+    private GeneratedInjectors() {
+    }
+
+    /**
+     * Loads generated injector for {@code type}.
+     *
+     * @return generated injector or {@code null} if not available
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> GeneratedInjector<T> load(@NonNull Class<T> type) {
+
+        ClassLoader classLoader = type.getClassLoader();
+        if ((classLoader == null) || type.isArray() || type.isPrimitive()) {
+            return null;
+        }
+
+        Class<?> generatedClass;
+        try {
+            generatedClass = Class.forName(type.getName() + GeneratedInjector.SUFFIX, true, classLoader);
+        } catch (ClassNotFoundException | LinkageError exception) {
+            return null;
+        }
+
+        if (!GeneratedInjector.class.isAssignableFrom(generatedClass)) {
+            return null;
+        }
+
+        try {
+            return (GeneratedInjector<T>) generatedClass.getConstructor().newInstance();
+        } catch (ReflectiveOperationException exception) {
+            throw new InjectorException("Cannot initialize generated injector " + generatedClass, exception);
+        }
+    }
+
+    public static Object resolveField(@NonNull Injector injector, @NonNull Class<?> owner, @NonNull String field, @NonNull String name, boolean exact, @NonNull Class<?> type) {
+
+        Optional<? extends Injectable<?>> injectable = exact
+            ? injector.getInjectableExact(name, type)
+            : injector.getInjectable(name, type);
+
+        if (!injectable.isPresent()) {
+            resolutionFailure(injector, owner, name, type);
+            String inject = "@" + Inject.class.getName() + "(" + (exact ? ("\"" + name + "\"") : "") + ")";
+            throw new InjectorException("cannot resolve " + inject + " " + type + " [" + field + "] in instance of " + owner);
+        }
+
+        return injectable.get().getObject();
+    }
+
+    public static Object resolveParameter(@NonNull Injector injector, @NonNull String name, @NonNull Class<?> type) {
+
+        Optional<? extends Injectable<?>> injectable = injector.getInjectable(name, type);
+        if (!injectable.isPresent()) {
+            resolutionFailure(injector, null, name, type);
+            throw new InjectorException("Cannot fill parameters, no injectable of type " + type + " [" + name + "] found");
+        }
+
+        return injectable.get().getObject();
+    }
+
+    private static void resolutionFailure(Injector injector, Class<?> owner, String name, Class<?> type) {
+        InjectorListener listener = (injector instanceof OkaeriInjector) ? ((OkaeriInjector) injector).getListener() : null;
+        if ((listener != null) && listener.isEnabled()) {
+            listener.onResolutionFailure(owner, name, type);
+        }
+    }
+
+    public static Provider<?> provider(@NonNull Injector injector, @NonNull String name, boolean exact, @NonNull Class<?> type) {
+        return exact ? injector.getExactProvider(name, type) : injector.getProvider(name, type);
+    }
+
+    public static Lazy<?> lazy(@NonNull Injector injector, @NonNull String name, boolean exact, @NonNull Class<?> type) {
+        return Lazy.of(provider(injector, name, exact, type));
+    }
+
+    public static void register(@NonNull Injector injector, @NonNull String name, Object result) {
+        if (result != null) {
+            injector.registerInjectable(name, result);
+        }
+    }
+
+    public static Field field(@NonNull Class<?> owner, @NonNull String name) {
+        try {
+            Field field = owner.getDeclaredField(name);
+            field.setAccessible(true);
+            return field;
+        } catch (NoSuchFieldException exception) {
+            throw new InjectorException("Generated injector is out of date for " + owner, exception);
+        }
+    }
+
+    public static Method method(@NonNull Class<?> owner, @NonNull String name, @NonNull Class<?>... parameterTypes) {
+        try {
+            Method method = owner.getDeclaredMethod(name, parameterTypes);
+            method.setAccessible(true);
+            return method;
+        } catch (NoSuchMethodException exception) {
+            throw new InjectorException("Generated injector is out of date for " + owner, exception);
+        }
+    }
+
+    public static void set(@NonNull Field field, Object instance, Object value) {
+        try {
+            field.set(instance, value);
+        } catch (IllegalAccessException exception) {
+            throw new InjectorException("cannot inject " + value + " to instance of " + field.getDeclaringClass(), exception);
+        }
+    }
+
+    public static Object invoke(@NonNull Method method, Object instance, @NonNull Object... args) throws Throwable {
+        try {
+            return method.invoke(instance, args);
+        } catch (InvocationTargetException exception) {
+            throw exception.getCause();
+        }
+    }
+
+    public static InjectorException invocationError(@NonNull String member, @NonNull Throwable cause) {
+        return new InjectorException("Error invoking " + member, cause);
+    }
+
+    public static InjectorException postConstructError(@NonNull Class<?> owner, @NonNull InjectorException cause) {
+        return new InjectorException("Failed to invoke @PostConstruct for instance of " + owner, cause);
+    }
+}
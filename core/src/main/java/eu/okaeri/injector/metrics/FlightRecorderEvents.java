@@ -0,0 +1,47 @@
+package eu.okaeri.injector.metrics;
+
+import eu.okaeri.injector.InjectorListener;
+
+import java.util.Optional;
+
+/**
+ * Java Flight Recorder events of the injector operations, available on runtimes with JFR ({@code jdk.jfr}).
+ * The events are loaded only when available, so runtimes without JFR are still supported.
+ *
+ * <pre>{@code
+ * FlightRecorderEvents.listener().ifPresent(injector::setListener);
+ * }</pre>
+ * <p>
+ * Emitted events ({@code eu.okaeri.injector.*}): {@code CreateInstance}, {@code CreateInstanceFailure},
+ * {@code PostConstruct}, {@code LookupFallback} and {@code ResolutionFailure}. While none of them is enabled
+ * in a running recording the listener is {@link InjectorListener#isEnabled() disabled} and nothing is measured.
+ */
+public final class FlightRecorderEvents {
+
+    private static final InjectorListener LISTENER = load();
+
+    private FlightRecorderEvents() {
+    }
+
+    public static boolean isAvailable() {
+        return LISTENER != null;
+    }
+
+    /**
+     * @return listener emitting the events, shared, or empty if JFR is not available
+     */
+    public static Optional<InjectorListener> listener() {
+        return Optional.ofNullable(LISTENER);
+    }
+
+    private static InjectorListener load() {
+        try {
+            Class.forName("jdk.jfr.Event");
+            return (InjectorListener) Class.forName("eu.okaeri.injector.metrics.FlightRecorderListener")
+                .getDeclaredConstructor()
+                .newInstance();
+        } catch (ReflectiveOperationException | LinkageError | RuntimeException exception) {
+            return null;
+        }
+    }
+}
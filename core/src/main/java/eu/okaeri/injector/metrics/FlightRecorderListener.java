@@ -0,0 +1,200 @@
+package eu.okaeri.injector.metrics;
+
+import eu.okaeri.injector.InjectorListener;
+import jdk.jfr.*;
+
+import java.lang.reflect.Method;
+
+/**
+ * Emits the {@link FlightRecorderEvents}, loaded only when {@code jdk.jfr} is available.
+ */
+final class FlightRecorderListener implements InjectorListener {
+
+    private static final String CATEGORY = "Okaeri Injector";
+    private static final EventType[] TYPES = {
+        EventType.getEventType(CreateInstanceEvent.class),
+        EventType.getEventType(CreateInstanceFailureEvent.class),
+        EventType.getEventType(PostConstructEvent.class),
+        EventType.getEventType(LookupFallbackEvent.class),
+        EventType.getEventType(ResolutionFailureEvent.class)
+    };
+
+    /**
+     * Whether any of the events is enabled, refreshed when a recording changes its state.
+     */
+    private volatile boolean enabled;
+
+    FlightRecorderListener() {
+        FlightRecorder.addListener(new jdk.jfr.FlightRecorderListener() {
+            @Override
+            public void recordingStateChanged(Recording recording) {
+                FlightRecorderListener.this.enabled = anyEnabled();
+            }
+        });
+        this.enabled = anyEnabled();
+    }
+
+    private static boolean anyEnabled() {
+        for (EventType type : TYPES) {
+            if (type.isEnabled()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Enabled while any of the events is enabled in a running recording. Events enabled in a recording
+     * that is already running are picked up when any recording starts or stops.
+     */
+    @Override
+    public boolean isEnabled() {
+        return this.enabled;
+    }
+
+    @Override
+    public void onFallback(String name, Class<?> type, boolean hit) {
+        LookupFallbackEvent event = new LookupFallbackEvent();
+        if (event.isEnabled()) {
+            event.name = name;
+            event.type = type;
+            event.hit = hit;
+            event.commit();
+        }
+    }
+
+    @Override
+    public void onResolutionFailure(Class<?> owner, String name, Class<?> type) {
+        ResolutionFailureEvent event = new ResolutionFailureEvent();
+        if (event.isEnabled()) {
+            event.owner = owner;
+            event.name = name;
+            event.type = type;
+            event.commit();
+        }
+    }
+
+    @Override
+    public void onPostConstruct(Class<?> type, Method method, int order, long nanos) {
+        PostConstructEvent event = new PostConstructEvent();
+        if (event.isEnabled()) {
+            event.type = type;
+            event.method = method.getName();
+            event.order = order;
+            event.time = nanos;
+            event.commit();
+        }
+    }
+
+    @Override
+    public void onCreateInstanceFailure(Class<?> type, Throwable cause) {
+        CreateInstanceFailureEvent event = new CreateInstanceFailureEvent();
+        if (event.isEnabled()) {
+            event.type = type;
+            event.message = String.valueOf(cause);
+            event.commit();
+        }
+    }
+
+    @Override
+    public void onCreateInstance(Class<?> type, long constructionNanos, long injectionNanos, long postConstructsNanos) {
+        CreateInstanceEvent event = new CreateInstanceEvent();
+        if (event.isEnabled()) {
+            event.type = type;
+            event.constructionTime = constructionNanos;
+            event.injectionTime = injectionNanos;
+            event.postConstructsTime = postConstructsNanos;
+            event.totalTime = constructionNanos + injectionNanos + postConstructsNanos;
+            event.commit();
+        }
+    }
+
+    @Name("eu.okaeri.injector.CreateInstance")
+    @Label("Create Instance")
+    @Category(CATEGORY)
+    @StackTrace(false)
+    static final class CreateInstanceEvent extends Event {
+
+        @Label("Type")
+        Class<?> type;
+
+        @Label("Construction Time")
+        @Timespan(Timespan.NANOSECONDS)
+        long constructionTime;
+
+        @Label("Injection Time")
+        @Timespan(Timespan.NANOSECONDS)
+        long injectionTime;
+
+        @Label("Post Constructs Time")
+        @Timespan(Timespan.NANOSECONDS)
+        long postConstructsTime;
+
+        @Label("Total Time")
+        @Timespan(Timespan.NANOSECONDS)
+        long totalTime;
+    }
+
+    @Name("eu.okaeri.injector.CreateInstanceFailure")
+    @Label("Create Instance Failure")
+    @Category(CATEGORY)
+    static final class CreateInstanceFailureEvent extends Event {
+
+        @Label("Type")
+        Class<?> type;
+
+        @Label("Message")
+        String message;
+    }
+
+    @Name("eu.okaeri.injector.PostConstruct")
+    @Label("Post Construct")
+    @Category(CATEGORY)
+    @StackTrace(false)
+    static final class PostConstructEvent extends Event {
+
+        @Label("Type")
+        Class<?> type;
+
+        @Label("Method")
+        String method;
+
+        @Label("Order")
+        int order;
+
+        @Label("Time")
+        @Timespan(Timespan.NANOSECONDS)
+        long time;
+    }
+
+    @Name("eu.okaeri.injector.LookupFallback")
+    @Label("Lookup Fallback")
+    @Description("Named lookup without a match, fell back to the type-only lookup")
+    @Category(CATEGORY)
+    static final class LookupFallbackEvent extends Event {
+
+        @Label("Name")
+        String name;
+
+        @Label("Type")
+        Class<?> type;
+
+        @Label("Hit")
+        boolean hit;
+    }
+
+    @Name("eu.okaeri.injector.ResolutionFailure")
+    @Label("Resolution Failure")
+    @Category(CATEGORY)
+    static final class ResolutionFailureEvent extends Event {
+
+        @Label("Owner")
+        Class<?> owner;
+
+        @Label("Name")
+        String name;
+
+        @Label("Type")
+        Class<?> type;
+    }
+}
@@ -0,0 +1,100 @@
+package eu.okaeri.injector.metrics;
+
+import eu.okaeri.injector.Injectable;
+import eu.okaeri.injector.InjectorListener;
+import lombok.Getter;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Low overhead {@link InjectorListener} aggregating counters and latency histograms
+ * using striped {@link LongAdder}s. Safe to share between multiple injectors.
+ *
+ * <pre>{@code
+ * InjectorMetrics metrics = new InjectorMetrics();
+ * OkaeriInjector injector = OkaeriInjector.create().setListener(metrics);
+ * // ...
+ * metrics.snapshot().forEach((key, value) -> exporter.gauge("injector." + key, value));
+ * }</pre>
+ */
+@Getter
+public class InjectorMetrics implements InjectorListener {
+
+    private final LongAdder lookupHits = new LongAdder();
+    private final LongAdder lookupMisses = new LongAdder();
+    private final LongAdder fallbackHits = new LongAdder();
+    private final LongAdder fallbackMisses = new LongAdder();
+    private final LongAdder registrations = new LongAdder();
+
+    private final LatencyHistogram lookupLatency = new LatencyHistogram();
+    private final LatencyHistogram constructionLatency = new LatencyHistogram();
+    private final LatencyHistogram injectionLatency = new LatencyHistogram();
+    private final LatencyHistogram postConstructsLatency = new LatencyHistogram();
+    private final LatencyHistogram createInstanceLatency = new LatencyHistogram();
+
+    @Override
+    public void onLookup(String name, Class<?> type, boolean hit, long nanos) {
+        (hit ? this.lookupHits : this.lookupMisses).increment();
+        this.lookupLatency.record(nanos);
+    }
+
+    @Override
+    public void onFallback(String name, Class<?> type, boolean hit) {
+        (hit ? this.fallbackHits : this.fallbackMisses).increment();
+    }
+
+    @Override
+    public void onCreateInstance(Class<?> type, long constructionNanos, long injectionNanos, long postConstructsNanos) {
+        this.constructionLatency.record(constructionNanos);
+        this.injectionLatency.record(injectionNanos);
+        this.postConstructsLatency.record(postConstructsNanos);
+        this.createInstanceLatency.record(constructionNanos + injectionNanos + postConstructsNanos);
+    }
+
+    @Override
+    public void onRegister(Injectable<?> injectable) {
+        this.registrations.increment();
+    }
+
+    /**
+     * @return current values keyed by dotted names, e.g. {@code lookup.hits} or {@code create_instance.p99_ns}
+     */
+    public Map<String, Number> snapshot() {
+
+        Map<String, Number> snapshot = new LinkedHashMap<>();
+        snapshot.put("lookup.hits", this.lookupHits.sum());
+        snapshot.put("lookup.misses", this.lookupMisses.sum());
+        snapshot.put("fallback.hits", this.fallbackHits.sum());
+        snapshot.put("fallback.misses", this.fallbackMisses.sum());
+        snapshot.put("registrations", this.registrations.sum());
+
+        this.lookupLatency.export(snapshot, "lookup");
+        this.constructionLatency.export(snapshot, "construction");
+        this.injectionLatency.export(snapshot, "injection");
+        this.postConstructsLatency.export(snapshot, "post_constructs");
+        this.createInstanceLatency.export(snapshot, "create_instance");
+
+        return Collections.unmodifiableMap(snapshot);
+    }
+
+    public void reset() {
+        this.lookupHits.reset();
+        this.lookupMisses.reset();
+        this.fallbackHits.reset();
+        this.fallbackMisses.reset();
+        this.registrations.reset();
+        this.lookupLatency.reset();
+        this.constructionLatency.reset();
+        this.injectionLatency.reset();
+        this.postConstructsLatency.reset();
+        this.createInstanceLatency.reset();
+    }
+
+    @Override
+    public String toString() {
+        return "InjectorMetrics" + this.snapshot();
+    }
+}
@@ -0,0 +1,120 @@
+package eu.okaeri.injector.metrics;
+
+import java.util.Map;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Concurrent histogram of durations in nanoseconds with power of two buckets.
+ * <p>
+ * Recording is lock-free and does not allocate, bucket {@code i} counts values
+ * from {@code 2^(i-1)} (inclusive) to {@code 2^i} (exclusive), bucket {@code 0} counts zeros.
+ */
+public final class LatencyHistogram {
+
+    private static final int BUCKETS = 64;
+
+    private final LongAdder[] buckets = new LongAdder[BUCKETS];
+    private final LongAdder count = new LongAdder();
+    private final LongAdder total = new LongAdder();
+    private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+    public LatencyHistogram() {
+        for (int i = 0; i < BUCKETS; i++) {
+            this.buckets[i] = new LongAdder();
+        }
+    }
+
+    public void record(long nanos) {
+        long value = Math.max(0, nanos);
+        this.buckets[Math.min(BUCKETS - 1, 64 - Long.numberOfLeadingZeros(value))].increment();
+        this.count.increment();
+        this.total.add(value);
+        this.max.accumulate(value);
+    }
+
+    public long getCount() {
+        return this.count.sum();
+    }
+
+    public long getTotalNanos() {
+        return this.total.sum();
+    }
+
+    public long getMaxNanos() {
+        return this.max.get();
+    }
+
+    public double getMeanNanos() {
+        long count = this.getCount();
+        return (count == 0) ? 0 : ((double) this.getTotalNanos() / count);
+    }
+
+    /**
+     * @return counts of the buckets, see the class description for their bounds
+     */
+    public long[] getBuckets() {
+        long[] buckets = new long[BUCKETS];
+        for (int i = 0; i < BUCKETS; i++) {
+            buckets[i] = this.buckets[i].sum();
+        }
+        return buckets;
+    }
+
+    /**
+     * @param percentile value between {@code 0} and {@code 100}
+     * @return upper bound of the bucket containing the percentile, {@code 0} if nothing was recorded
+     */
+    public long getPercentileNanos(double percentile) {
+
+        if ((percentile < 0) || (percentile > 100)) {
+            throw new IllegalArgumentException("percentile must be between 0 and 100: " + percentile);
+        }
+
+        long[] buckets = this.getBuckets();
+        long count = 0;
+        for (long bucket : buckets) {
+            count += bucket;
+        }
+        if (count == 0) {
+            return 0;
+        }
+
+        long rank = Math.max(1, (long) Math.ceil((percentile / 100) * count));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += buckets[i];
+            if (seen >= rank) {
+                return (i == 0) ? 0 : Math.min(this.getMaxNanos(), (i == 63) ? Long.MAX_VALUE : ((1L << i) - 1));
+            }
+        }
+
+        return this.getMaxNanos();
+    }
+
+    public void reset() {
+        for (LongAdder bucket : this.buckets) {
+            bucket.reset();
+        }
+        this.count.reset();
+        this.total.reset();
+        this.max.reset();
+    }
+
+    @Override
+    public String toString() {
+        return "LatencyHistogram(count=" + this.getCount()
+            + ", mean=" + Math.round(this.getMeanNanos())
+            + "ns, p50=" + this.getPercentileNanos(50)
+            + "ns, p99=" + this.getPercentileNanos(99)
+            + "ns, max=" + this.getMaxNanos() + "ns)";
+    }
+
+    void export(Map<String, Number> target, String prefix) {
+        target.put(prefix + ".count", this.getCount());
+        target.put(prefix + ".total_ns", this.getTotalNanos());
+        target.put(prefix + ".max_ns", this.getMaxNanos());
+        target.put(prefix + ".p50_ns", this.getPercentileNanos(50));
+        target.put(prefix + ".p99_ns", this.getPercentileNanos(99));
+    }
+}
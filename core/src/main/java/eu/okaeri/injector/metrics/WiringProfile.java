@@ -0,0 +1,189 @@
+package eu.okaeri.injector.metrics;
+
+import eu.okaeri.injector.InjectorListener;
+import lombok.Getter;
+
+import java.lang.reflect.Method;
+import java.util.*;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * {@link InjectorListener} recording the tree of created instances: instances created while creating another one,
+ * e.g. from its {@code @PostConstruct} methods, are its children. Intended for the startup, every created instance
+ * is kept until {@link #reset()}.
+ *
+ * <pre>{@code
+ * WiringProfile profile = new WiringProfile();
+ * OkaeriInjector injector = OkaeriInjector.create().setListener(profile);
+ * // ...
+ * System.out.println(profile.dump());
+ * }</pre>
+ * <p>
+ * Instances created using {@code createInstanceAsync} are recorded as roots without their post construct timings.
+ */
+public class WiringProfile implements InjectorListener {
+
+    private final Queue<Node> roots = new ConcurrentLinkedQueue<>();
+    private final ThreadLocal<Deque<Node>> open = ThreadLocal.withInitial(ArrayDeque::new);
+
+    @Override
+    public void onCreateInstanceStart(Class<?> type) {
+        this.open.get().push(new Node(type));
+    }
+
+    @Override
+    public void onPostConstruct(Class<?> type, Method method, int order, long nanos) {
+        Node node = this.open.get().peek();
+        if ((node != null) && (node.type == type)) {
+            node.postConstructs.add(new PostConstructTiming(method, order, nanos));
+        }
+    }
+
+    @Override
+    public void onCreateInstanceFailure(Class<?> type, Throwable cause) {
+        Node node = this.close(type);
+        if (node != null) {
+            node.failed = true;
+            this.complete(node);
+        }
+    }
+
+    @Override
+    public void onCreateInstance(Class<?> type, long constructionNanos, long injectionNanos, long postConstructsNanos) {
+        Node node = this.close(type);
+        if (node == null) {
+            // created asynchronously
+            node = new Node(type);
+        }
+        node.constructionNanos = constructionNanos;
+        node.injectionNanos = injectionNanos;
+        node.postConstructsNanos = postConstructsNanos;
+        this.complete(node);
+    }
+
+    private Node close(Class<?> type) {
+        Deque<Node> open = this.open.get();
+        Node node = open.peek();
+        if ((node == null) || (node.type != type)) {
+            return null;
+        }
+        return open.pop();
+    }
+
+    private void complete(Node node) {
+        Node parent = this.open.get().peek();
+        if (parent == null) {
+            this.roots.add(node);
+        } else {
+            parent.children.add(node);
+        }
+    }
+
+    /**
+     * @return completed top-level instances, the slowest first
+     */
+    public List<Node> getRoots() {
+        List<Node> roots = new ArrayList<>(this.roots);
+        roots.sort(Node.SLOWEST_FIRST);
+        return roots;
+    }
+
+    public void reset() {
+        this.roots.clear();
+    }
+
+    /**
+     * @return human-readable tree, children and post constructs sorted by time, the slowest first
+     */
+    public String dump() {
+        StringBuilder builder = new StringBuilder();
+        for (Node root : this.getRoots()) {
+            root.dump(builder, 0);
+        }
+        return builder.toString();
+    }
+
+    private static String millis(long nanos) {
+        return String.format(Locale.ROOT, "%.3f ms", nanos / 1_000_000.0);
+    }
+
+    @Getter
+    public static final class Node {
+
+        private static final Comparator<Node> SLOWEST_FIRST = Comparator.comparingLong(Node::getTotalNanos).reversed();
+
+        private final Class<?> type;
+        private final List<PostConstructTiming> postConstructs = new ArrayList<>();
+        private final List<Node> children = new ArrayList<>();
+        private long constructionNanos;
+        private long injectionNanos;
+        private long postConstructsNanos;
+        private boolean failed;
+
+        private Node(Class<?> type) {
+            this.type = type;
+        }
+
+        public long getTotalNanos() {
+            return this.constructionNanos + this.injectionNanos + this.postConstructsNanos;
+        }
+
+        /**
+         * @return children sorted by time, the slowest first
+         */
+        public List<Node> getChildren() {
+            List<Node> children = new ArrayList<>(this.children);
+            children.sort(SLOWEST_FIRST);
+            return children;
+        }
+
+        private void dump(StringBuilder builder, int depth) {
+
+            indent(builder, depth).append(millis(this.getTotalNanos())).append("  ").append(this.type.getName());
+            if (this.failed) {
+                builder.append(" (failed)\n");
+            } else {
+                builder.append(" (construction ").append(millis(this.constructionNanos))
+                    .append(", injection ").append(millis(this.injectionNanos))
+                    .append(", post constructs ").append(millis(this.postConstructsNanos))
+                    .append(")\n");
+            }
+
+            // post constructs and children interleaved by time
+            List<Object> entries = new ArrayList<>(this.postConstructs);
+            entries.addAll(this.children);
+            entries.sort(Comparator.comparingLong(entry -> (entry instanceof Node) ? -((Node) entry).getTotalNanos() : -((PostConstructTiming) entry).nanos));
+
+            for (Object entry : entries) {
+                if (entry instanceof Node) {
+                    ((Node) entry).dump(builder, depth + 1);
+                    continue;
+                }
+                PostConstructTiming timing = (PostConstructTiming) entry;
+                indent(builder, depth + 1).append(millis(timing.nanos)).append("  @PostConstruct(order = ").append(timing.order).append(") ")
+                    .append(timing.method.getName()).append("()\n");
+            }
+        }
+
+        private static StringBuilder indent(StringBuilder builder, int depth) {
+            for (int i = 0; i < depth; i++) {
+                builder.append("  ");
+            }
+            return builder;
+        }
+    }
+
+    @Getter
+    public static final class PostConstructTiming {
+
+        private final Method method;
+        private final int order;
+        private final long nanos;
+
+        private PostConstructTiming(Method method, int order, long nanos) {
+            this.method = method;
+            this.order = order;
+            this.nanos = nanos;
+        }
+    }
+}
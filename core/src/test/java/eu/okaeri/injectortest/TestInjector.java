@@ -0,0 +1,945 @@
+package eu.okaeri.injectortest;
+
+import eu.okaeri.injector.Injectable;
+import eu.okaeri.injector.InjectableBatch;
+import eu.okaeri.injector.Injector;
+import eu.okaeri.injector.InjectorListener;
+import eu.okaeri.injector.InstanceAllocator;
+import eu.okaeri.injector.MetadataCache;
+import eu.okaeri.injector.OkaeriInjector;
+import eu.okaeri.injector.PreparedConstructor;
+import eu.okaeri.injector.PreparedMethod;
+import eu.okaeri.injector.exception.InjectorException;
+import eu.okaeri.injector.metrics.FlightRecorderEvents;
+import eu.okaeri.injector.metrics.InjectorMetrics;
+import eu.okaeri.injector.metrics.WiringProfile;
+import eu.okaeri.injectortest.element.*;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.ref.WeakReference;
+import java.lang.reflect.InvocationTargetException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public final class TestInjector {
+
+    @Test
+    public void test_simple_injector() {
+
+        Api api = new Api("test-api");
+        Injector injector = OkaeriInjector.create()
+            .registerInjectable(api);
+
+        Worker worker = injector.createInstance(Worker.class);
+        assertEquals(api, worker.getApi());
+        assertEquals(3, worker.getCounter());
+    }
+
+    @Test
+    public void test_double_type_injector() {
+
+        Api api = new Api("test-api1");
+        Api api2 = new Api("test-api2");
+
+        Injector injector = OkaeriInjector.create()
+            .registerInjectable("api", api)
+            .registerInjectable("api2", api2);
+
+        Worker worker = injector.createInstance(Worker.class);
+        assertEquals(api, worker.getApi());
+        assertEquals(3, worker.getCounter());
+
+        Worker2 worker2 = injector.createInstance(Worker2.class);
+        assertEquals(api2, worker2.getApi());
+    }
+
+    @Test
+    public void test_double_type_injector_2() {
+
+        Api api = new Api("api-abc");
+        Api api2 = new Api("api");
+
+        Injector injector = OkaeriInjector.create()
+            .registerInjectable("api-abc", api)
+            .registerInjectable("api", api2);
+
+        Worker worker = injector.createInstance(Worker.class);
+        assertEquals(api2, worker.getApi());
+        assertEquals(3, worker.getCounter());
+    }
+
+    @Test
+    public void test_always_provide_last() {
+
+        String string1 = "some value";
+        String string2 = "new value";
+
+        Injector injector = OkaeriInjector.create()
+            .registerInjectable("test1", string1)
+            .registerInjectable("test1", string2);
+
+        Optional<? extends Injectable<String>> injectable = injector.getInjectableExact("test1", String.class);
+        assertEquals(true, injectable.isPresent());
+        assertEquals(string2, injectable.get().getObject());
+    }
+
+    @Test
+    public void test_exclusive_register() {
+
+        String string1 = "some value";
+        String string2 = "new value";
+
+        Injector injector = OkaeriInjector.create()
+            .registerInjectable("test1", string1)
+            .registerInjectable("test1", string2)
+            .registerExclusive("test1", string1);
+
+        Optional<? extends Injectable<String>> injectable = injector.getInjectableExact("test1", String.class);
+        assertEquals(true, injectable.isPresent());
+        assertEquals(string1, injectable.get().getObject());
+        assertEquals(1, injector.allOf(String.class).size());
+    }
+
+    @Test
+    public void test_constructor() {
+
+        String name = "some app";
+        Injector injector = OkaeriInjector.create().registerInjectable("name", name);
+
+        App app = injector.createInstance(App.class);
+        assertEquals(name, app.getName());
+    }
+
+    @Test
+    public void test_supertype_lookup() {
+
+        Injector injector = OkaeriInjector.create()
+            .registerInjectable("list", new ArrayList<>(Arrays.asList("a", "b")))
+            .registerInjectable("array", new String[]{"c"})
+            .registerInjectable("other", "d");
+
+        assertEquals(Arrays.asList("a", "b"), injector.getExactOrThrow("list", Collection.class));
+        assertEquals("c", injector.getExactOrThrow("array", Object[].class)[0]);
+        assertEquals("d", injector.getExactOrThrow("", CharSequence.class));
+        assertEquals("d", injector.getExactOrThrow("", Object.class));
+        assertEquals(false, injector.getExact("other", Collection.class).isPresent());
+        assertEquals(3, injector.all().size());
+    }
+
+    @Test
+    public void test_large_registry_remove() {
+
+        Injector injector = OkaeriInjector.create();
+        for (int i = 0; i < 5_000; i++) {
+            injector.registerInjectable("value" + i, i);
+        }
+
+        assertEquals(4999, injector.getExactOrThrow("", Integer.class));
+        assertEquals(1234, injector.getExactOrThrow("value1234", Number.class));
+
+        injector.removeIf(injectable -> ((Integer) injectable.getObject()) >= 2_500);
+        assertEquals(2499, injector.getExactOrThrow("", Integer.class));
+        assertEquals(false, injector.getExact("value2500", Integer.class).isPresent());
+        assertEquals(2_500, injector.all().size());
+        assertEquals(2499, injector.all().get(0).getObject());
+    }
+
+    @Test
+    public void test_type_index() {
+
+        Injector injector = OkaeriInjector.create()
+            .registerInjectable("a", "first")
+            .registerInjectable("b", 1)
+            .registerInjectable("c", new StringBuilder("second"))
+            .registerInjectable("d", 2L);
+
+        assertEquals(Arrays.asList("second", "first"), injector.streamOf(CharSequence.class).map(Object::toString).collect(Collectors.toList()));
+        assertEquals(Arrays.asList(2L, 1), injector.streamOf(Number.class).collect(Collectors.toList()));
+        assertEquals(4, injector.allOf(Object.class).size());
+        assertEquals(0, injector.allOf(Thread.class).size());
+
+        injector.registerExclusive("a", "third");
+        assertEquals(Arrays.asList("third", "second"), injector.streamOf(CharSequence.class).map(Object::toString).collect(Collectors.toList()));
+        assertEquals("third", injector.getExactOrThrow("a", Comparable.class));
+
+        injector.removeIf(injectable -> injectable.getObject() instanceof Number);
+        assertEquals(0, injector.allOf(Number.class).size());
+        assertEquals(false, injector.getExact("b", Integer.class).isPresent());
+        assertEquals(2, injector.allOf(Object.class).size());
+
+        injector.registerInjectable("b", 3);
+        assertEquals(Collections.singletonList(3), injector.streamOf(Number.class).collect(Collectors.toList()));
+    }
+
+    @Test
+    public void test_repeated_create() {
+
+        Api api = new Api("test-api");
+        Injector injector = OkaeriInjector.create()
+            .registerInjectable(api);
+
+        for (int i = 0; i < 100; i++) {
+            Worker worker = injector.createInstance(Worker.class);
+            assertEquals(api, worker.getApi());
+            assertEquals(3, worker.getCounter());
+        }
+    }
+
+    @Test
+    public void test_batch_register() {
+
+        Injector injector = OkaeriInjector.create()
+            .registerInjectable("test1", "old value")
+            .registerInjectable("test2", (CharSequence) "kept value", CharSequence.class);
+
+        injector.registerAll(InjectableBatch.create()
+            .register("test1", "some value")
+            .register("test1", "new value")
+            .registerExclusive("test2", "exclusive value")
+            .register("other", 1));
+
+        assertEquals("new value", injector.getExactOrThrow("test1", String.class));
+        assertEquals("exclusive value", injector.getExactOrThrow("test2", CharSequence.class));
+        assertEquals(4, injector.allOf(String.class).size());
+        assertEquals(1, injector.getExactOrThrow("", Integer.class));
+
+        InjectableBatch batch = InjectableBatch.create();
+        for (int i = 0; i < 10_000; i++) {
+            batch.register("value" + (i % 100), i);
+        }
+        batch.registerExclusive("value42", 42, Integer.class);
+
+        // batch is published at once, views taken before are not affected
+        List<Injectable<CharSequence>> before = injector.allOf(CharSequence.class);
+        injector.registerAll(batch);
+        assertEquals(4, before.size());
+        assertEquals(42, injector.getExactOrThrow("", Integer.class));
+        assertEquals(9998, injector.getExactOrThrow("value98", Integer.class));
+        assertEquals(1, injector.allOf(Integer.class).stream().filter(injectable -> "value42".equals(injectable.getName())).count());
+        assertEquals(5 + 9_901, injector.all().size());
+
+        // unaffected buckets are shared, affected ones updated
+        injector.registerAll(InjectableBatch.create().registerExclusive("test1", "replaced").register("test3", 3L));
+        assertEquals("replaced", injector.getExactOrThrow("test1", String.class));
+        assertEquals(3L, injector.getExactOrThrow("test3", Long.class));
+        assertEquals("exclusive value", injector.getExactOrThrow("test2", CharSequence.class));
+        assertEquals(9998, injector.getExactOrThrow("value98", Integer.class));
+        assertEquals(5 + 9_901 - 3 + 2, injector.all().size());
+    }
+
+    @Test
+    public void test_create_instances() {
+
+        Api api = new Api("test-api");
+        OkaeriInjector injector = OkaeriInjector.create();
+        injector.registerInjectable(api);
+
+        List<Class<?>> components = Arrays.asList(Service.class, Worker.class, Storage.class);
+        assertEquals(Arrays.asList(Arrays.asList(Worker.class, Storage.class), Collections.singletonList(Service.class)), injector.analyze(components).getWaves());
+
+        Map<Class<?>, Object> instances = injector.createInstances(components);
+        assertEquals(components, new ArrayList<>(instances.keySet()));
+
+        Service service = (Service) instances.get(Service.class);
+        assertEquals(instances.get(Storage.class), service.getStorage());
+        assertEquals("storage-" + api, service.getStorageName());
+        assertEquals(api, service.getStorage().getApi());
+        assertEquals(service, injector.getExactOrThrow("", Service.class));
+    }
+
+    @Test
+    public void test_create_instances_invalid() {
+
+        OkaeriInjector injector = OkaeriInjector.create();
+        assertThrows(InjectorException.class, () -> injector.createInstances(Arrays.asList(Service.class, Storage.class)));
+        assertThrows(InjectorException.class, () -> injector.createInstances(Arrays.asList(CycleA.class, CycleB.class)));
+        assertEquals(0, injector.all().size());
+    }
+
+    @Test
+    public void test_lazy_injection() {
+
+        Injector injector = OkaeriInjector.create();
+        LazyWorker worker = injector.createInstance(LazyWorker.class);
+        assertThrows(InjectorException.class, () -> worker.getApi().get());
+        assertEquals(false, worker.getApi2().isResolved());
+
+        Api api = new Api("api");
+        Api api2 = new Api("api2");
+        injector.registerInjectable("api", api).registerInjectable("api2", api2);
+        assertEquals(api, worker.getApi().get());
+        assertEquals(api2, worker.getApi2().get());
+        assertEquals(true, worker.getApi2().isResolved());
+
+        Api api3 = new Api("api3");
+        injector.registerInjectable("api", api3).registerInjectable("api2", api3);
+        assertEquals(api3, worker.getApi().get());
+        assertEquals(api2, worker.getApi2().get());
+    }
+
+    @Test
+    public void test_child_injector() {
+
+        Api api = new Api("api");
+        Api api2 = new Api("api2");
+        OkaeriInjector parent = OkaeriInjector.create();
+        parent.registerInjectable("api", api).registerInjectable("api2", api2);
+
+        Api childApi = new Api("child-api");
+        OkaeriInjector child = parent.child();
+        child.registerInjectable(childApi);
+
+        // named in parent wins over type-only in child
+        assertEquals(api, child.createInstance(Worker.class).getApi());
+        assertEquals(api2, child.createInstance(Worker2.class).getApi());
+        assertEquals(childApi, child.getExactOrThrow("", Api.class));
+        assertEquals(api2, parent.getExactOrThrow("", Api.class));
+        assertEquals(3, child.all().size());
+        assertEquals(childApi, child.all().get(0).getObject());
+        assertEquals(2, parent.all().size());
+
+        Api childApi2 = new Api("child-api2");
+        child.registerInjectable("api2", childApi2);
+        assertEquals(childApi2, child.createInstance(Worker2.class).getApi());
+        assertEquals(api2, parent.createInstance(Worker2.class).getApi());
+
+        child.removeIf(injectable -> true);
+        assertEquals(api2, child.getExactOrThrow("", Api.class));
+        assertEquals(2, child.all().size());
+    }
+
+    @Test
+    public void test_frozen_injector() {
+
+        Api api = new Api("api");
+        Api api2 = new Api("api2");
+        OkaeriInjector injector = OkaeriInjector.create();
+        injector.registerInjectable("api", api)
+            .registerInjectable("api2", api2)
+            .registerInjectable("test1", "some value")
+            .registerInjectable("test1", "new value");
+
+        OkaeriInjector frozen = injector.freeze();
+        assertEquals(true, frozen.isFrozen());
+        assertEquals(injector.all(), frozen.all());
+        assertEquals(injector.allOf(CharSequence.class), frozen.allOf(CharSequence.class));
+        assertEquals("new value", frozen.getExactOrThrow("test1", CharSequence.class));
+        assertEquals(api2, frozen.getExactOrThrow("", Api.class));
+        assertEquals(false, frozen.getExact("test2", String.class).isPresent());
+        assertEquals(false, frozen.getExact("", Integer.class).isPresent());
+        assertTrue(frozen.getInjectable("api", Api.class) == frozen.getInjectable("api", Api.class));
+        assertTrue(frozen.getInjectable("other", Api.class) == frozen.getInjectable("", Api.class));
+
+        // also with a listener, which is notified of the fallback only
+        InjectorMetrics metrics = new InjectorMetrics();
+        frozen.setListener(metrics);
+        assertTrue(frozen.getInjectable("api", Api.class) == frozen.getInjectable("api", Api.class));
+        assertTrue(frozen.getInjectable("other", Api.class) == frozen.getInjectable("", Api.class));
+        assertEquals(1L, metrics.getFallbackHits().sum());
+        frozen.setListener(null);
+
+        assertEquals(api, frozen.createInstance(Worker.class).getApi());
+        assertEquals(api2, frozen.createInstance(Worker2.class).getApi());
+
+        assertThrows(InjectorException.class, () -> frozen.registerInjectable("api3", new Api("api3")));
+        assertThrows(InjectorException.class, () -> frozen.registerExclusive("api", new Api("api3")));
+        assertThrows(InjectorException.class, () -> frozen.removeIf(injectable -> true));
+
+        injector.registerInjectable("api", new Api("api3"));
+        assertEquals(api, frozen.getExactOrThrow("api", Api.class));
+
+        OkaeriInjector child = frozen.child();
+        Api childApi = new Api("child-api");
+        child.registerInjectable("api", childApi);
+        assertEquals(childApi, child.createInstance(Worker.class).getApi());
+    }
+
+    @Test
+    public void test_metrics_listener() {
+
+        InjectorMetrics metrics = new InjectorMetrics();
+        OkaeriInjector injector = OkaeriInjector.create().setListener(metrics);
+        injector.registerInjectable("api", new Api("api"))
+            .registerAll(InjectableBatch.create().register("test", "value").register("count", 1));
+        assertEquals(3L, metrics.getRegistrations().sum());
+
+        OkaeriInjector child = injector.child();
+        assertEquals(true, child.getInjectable("api", Api.class).isPresent());
+        assertEquals(true, child.getInjectable("other", Api.class).isPresent());
+        assertEquals(false, child.getInjectable("other", Thread.class).isPresent());
+        assertEquals(2L, metrics.getLookupHits().sum());
+        assertEquals(3L, metrics.getLookupMisses().sum());
+        assertEquals(1L, metrics.getFallbackHits().sum());
+        assertEquals(1L, metrics.getFallbackMisses().sum());
+
+        child.createInstance(Worker.class);
+        assertEquals(1L, metrics.getCreateInstanceLatency().getCount());
+        assertEquals(1L, metrics.getPostConstructsLatency().getCount());
+        assertEquals(1L, metrics.snapshot().get("construction.count"));
+
+        // disabled listeners are skipped by the composite
+        InjectorMetrics enabled = new InjectorMetrics();
+        InjectorMetrics disabled = new InjectorMetrics() {
+            @Override
+            public boolean isEnabled() {
+                return false;
+            }
+        };
+        OkaeriInjector composite = OkaeriInjector.create().setListener(InjectorListener.all(enabled, disabled));
+        composite.registerInjectable("api", new Api("api"));
+        assertEquals(true, composite.getInjectable("api", Api.class).isPresent());
+        assertEquals(1L, enabled.getRegistrations().sum());
+        assertEquals(1L, enabled.getLookupHits().sum());
+        assertEquals(0L, disabled.getRegistrations().sum());
+        assertEquals(0L, disabled.getLookupHits().sum());
+
+        // regardless of the order
+        composite.setListener(InjectorListener.all(disabled, enabled));
+        composite.createInstance(Worker.class);
+        assertEquals(1L, enabled.getCreateInstanceLatency().getCount());
+        assertEquals(0L, disabled.getCreateInstanceLatency().getCount());
+
+        // enabled if any of the listeners is
+        assertEquals(true, InjectorListener.all(disabled, enabled).isEnabled());
+        assertEquals(true, InjectorListener.all(enabled, disabled).isEnabled());
+        assertEquals(false, InjectorListener.all(disabled, disabled).isEnabled());
+        assertEquals(false, InjectorListener.all().isEnabled());
+    }
+
+    @Test
+    public void test_get_or_create() throws Exception {
+
+        OkaeriInjector injector = OkaeriInjector.create();
+        assertThrows(InjectorException.class, () -> injector.getOrCreate(Counter.class));
+
+        injector.registerInjectable(new Api("api"));
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<Counter>> futures = new ArrayList<>();
+            for (int i = 0; i < 16; i++) {
+                futures.add(executor.submit(() -> injector.getOrCreate(Counter.class, true)));
+            }
+            Counter counter = futures.get(0).get();
+            for (Future<Counter> future : futures) {
+                assertEquals(counter, future.get());
+            }
+            assertEquals(1, Counter.CREATED.get());
+            assertEquals(counter, injector.getExactOrThrow("", Counter.class));
+            assertEquals(1, injector.allOf(Counter.class).size());
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void test_lazy_injectable() throws Exception {
+
+        AtomicInteger supplied = new AtomicInteger();
+        OkaeriInjector injector = OkaeriInjector.create();
+        injector.registerLazy("api", () -> {
+            supplied.incrementAndGet();
+            return new Api("lazy-api");
+        }, Api.class);
+        injector.registerLazy("failing", () -> null, String.class);
+
+        assertEquals(1, injector.allOf(Api.class).size());
+        assertEquals(0, supplied.get());
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<Worker>> futures = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                futures.add(executor.submit(() -> injector.createInstance(Worker.class)));
+            }
+            Api api = injector.getOrThrow("api", Api.class);
+            for (Future<Worker> future : futures) {
+                assertEquals(api, future.get().getApi());
+            }
+            assertEquals("Api(name=lazy-api)", api.toString());
+            assertEquals(1, supplied.get());
+        } finally {
+            executor.shutdown();
+        }
+
+        assertThrows(InjectorException.class, () -> injector.getOrThrow("failing", String.class));
+    }
+
+    @Test
+    public void test_create_instance_async() throws Exception {
+
+        Api api = new Api("api");
+        OkaeriInjector injector = OkaeriInjector.create();
+        injector.registerInjectable(api);
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            AsyncWarmup warmup = injector.createInstanceAsync(AsyncWarmup.class, executor).get(10, TimeUnit.SECONDS);
+            assertEquals(api, warmup.getApi());
+            assertEquals(true, warmup.isCacheLoaded());
+            assertEquals("connected", injector.getExactOrThrow("checkConnection", String.class));
+            assertEquals(api, injector.createInstanceAsync(Worker.class, executor).get(10, TimeUnit.SECONDS).getApi());
+        } finally {
+            executor.shutdown();
+        }
+
+        ExecutionException exception = assertThrows(ExecutionException.class, () -> OkaeriInjector.create().createInstanceAsync(AsyncWarmup.class).get(10, TimeUnit.SECONDS));
+        assertEquals(InjectorException.class, exception.getCause().getClass());
+    }
+
+    @Test
+    public void test_compiled() {
+
+        Api api = new Api("api");
+        Api api2 = new Api("api2");
+
+        OkaeriInjector injector = OkaeriInjector.create().setCompiled(true);
+        injector.registerInjectable("api", api)
+            .registerInjectable("api2", api2)
+            .registerInjectable("name", "some app");
+        assertEquals(true, injector.child().isCompiled());
+
+        for (int i = 0; i < 10; i++) {
+            Worker worker = injector.createInstance(Worker.class);
+            assertEquals(api, worker.getApi());
+            assertEquals(3, worker.getCounter());
+            assertEquals(api2, injector.createInstance(Worker2.class).getApi());
+            assertEquals("some app", injector.createInstance(App.class).getName());
+        }
+
+        // bound members are called directly, reflection is the fallback before Java 9
+        Traced traced = injector.createInstance(Traced.class);
+        assertEquals("traced some app with Api(name=api2)", injector.getExactOrThrow("trace", String.class));
+        boolean bound = !System.getProperty("java.specification.version").startsWith("1.");
+        assertEquals(!bound, traced.isReflectiveConstructor());
+        assertEquals(!bound, traced.isReflectivePostConstruct());
+
+        Traced reflective = injector.setCompiled(false).createInstance(Traced.class);
+        assertTrue(reflective.isReflectiveConstructor());
+        assertTrue(reflective.isReflectivePostConstruct());
+    }
+
+    @Test
+    public void test_prepared_invokers() throws Exception {
+
+        Api api = new Api("api");
+        OkaeriInjector injector = OkaeriInjector.create();
+        injector.registerInjectable(api)
+            .registerInjectable("command", "first");
+
+        OkaeriInjector child = injector.child();
+        PreparedMethod dispatch = child.prepare(Dispatcher.class.getDeclaredMethod("dispatch", Api.class, String.class));
+        PreparedMethod describe = child.prepare(Dispatcher.class.getDeclaredMethod("describe", String.class));
+        PreparedConstructor<Dispatcher> constructor = child.prepare(Dispatcher.class.getConstructor(Api.class));
+
+        Dispatcher dispatcher = constructor.newInstance();
+        assertEquals(api, dispatcher.getApi());
+        assertEquals("first:" + api, dispatch.invoke(dispatcher));
+        assertEquals("first:" + api, dispatch.invoke(dispatcher));
+        assertEquals("command first", describe.invoke(null));
+
+        // changes of the parent are visible
+        injector.registerInjectable("command", "second");
+        assertEquals("second:" + api, dispatch.invoke(dispatcher));
+
+        child.registerInjectable("command", "third");
+        assertEquals("command third", describe.invoke(null));
+
+        child.removeIf(injectable -> true);
+        injector.removeIf(injectable -> injectable.getObject() instanceof String);
+        assertThrows(InjectorException.class, () -> describe.invoke(null));
+    }
+
+    @Test
+    public void test_prepared_invokers_failure() throws Exception {
+
+        OkaeriInjector injector = OkaeriInjector.create();
+        injector.registerInjectable("command", "failed");
+        PreparedMethod fail = injector.prepare(Dispatcher.class.getMethod("fail", String.class));
+        // java.base is not open, called reflectively
+        PreparedMethod parse = injector.prepare(Integer.class.getMethod("parseInt", String.class));
+        PreparedMethod load = injector.prepare(System.class.getMethod("loadLibrary", String.class));
+
+        // exceptions are wrapped the same by the invoker and reflection
+        Throwable failed = assertThrows(InjectorException.class, () -> fail.invoke(null)).getCause();
+        assertEquals(InvocationTargetException.class, failed.getClass());
+        assertEquals(IllegalStateException.class, failed.getCause().getClass());
+        Throwable parsed = assertThrows(InjectorException.class, () -> parse.invoke(null)).getCause();
+        assertEquals(InvocationTargetException.class, parsed.getClass());
+        assertEquals(NumberFormatException.class, parsed.getCause().getClass());
+
+        // errors are rethrown
+        injector.registerInjectable("command", "error");
+        assertEquals("error", assertThrows(AssertionError.class, () -> fail.invoke(null)).getMessage());
+        assertThrows(UnsatisfiedLinkError.class, () -> load.invoke(null));
+    }
+
+    @Test
+    public void test_prepared_invokers_evictable() throws Exception {
+
+        OkaeriInjector injector = OkaeriInjector.create();
+        injector.registerInjectable("command", "strong");
+        PreparedMethod describe = injector.prepare(Dispatcher.class.getDeclaredMethod("describe", String.class));
+
+        // expired without any registry change
+        injector.register(Injectable.expiring("command", "expiring", String.class, Duration.ofMillis(200)));
+        assertEquals("command expiring", describe.invoke(null));
+        Thread.sleep(250);
+        assertEquals("command strong", describe.invoke(null));
+
+        // not held by the prepared arguments
+        Object[] holder = {new String("weak")};
+        injector.register(Injectable.weak("command", (String) holder[0], String.class));
+        assertEquals("command weak", describe.invoke(null));
+        holder[0] = null;
+        for (int i = 0; (i < 100) && (injector.allOf(String.class).size() > 1); i++) {
+            System.gc();
+            Thread.sleep(10);
+        }
+        assertEquals(1, injector.allOf(String.class).size());
+        assertEquals("command strong", describe.invoke(null));
+
+        // evicted by the limit
+        injector.setEvictableLimit(1);
+        injector.register(Injectable.evictable("command", "first", String.class));
+        assertEquals("command first", describe.invoke(null));
+        injector.register(Injectable.evictable("other", "second", String.class));
+        assertEquals("command strong", describe.invoke(null));
+    }
+
+    @Test
+    public void test_evictable_injectables() throws Exception {
+
+        OkaeriInjector injector = OkaeriInjector.create();
+        injector.registerInjectable("api", new Api("strong"));
+
+        // most recent evictable wins until it is gone
+        injector.register(Injectable.expiring("api", new Api("expiring"), Api.class, Duration.ofMillis(10)));
+        assertEquals("Api(name=expiring)", injector.getOrThrow("api", Api.class).toString());
+        OkaeriInjector frozen = injector.freeze();
+        Thread.sleep(50);
+        assertEquals("Api(name=strong)", injector.getOrThrow("api", Api.class).toString());
+        assertEquals("Api(name=strong)", frozen.getOrThrow("api", Api.class).toString());
+        assertEquals(1, injector.allOf(Api.class).size());
+        assertEquals(1, frozen.allOf(Api.class).size());
+
+        // weak
+        Object[] holder = {new Api("weak")};
+        injector.register(Injectable.weak("api", (Api) holder[0], Api.class));
+        assertEquals(holder[0], injector.getOrThrow("api", Api.class));
+        holder[0] = null;
+        for (int i = 0; (i < 100) && (injector.allOf(Api.class).size() > 1); i++) {
+            System.gc();
+            Thread.sleep(10);
+        }
+        assertEquals("Api(name=strong)", injector.getOrThrow("api", Api.class).toString());
+        assertEquals(1, injector.allOf(Api.class).size());
+
+        // limit, oldest first
+        injector.setEvictableLimit(2);
+        for (int i = 0; i < 5; i++) {
+            injector.register(Injectable.evictable("counter" + i, i, Integer.class));
+        }
+        assertEquals(Arrays.asList(4, 3), injector.streamOf(Integer.class).collect(Collectors.toList()));
+        assertEquals(Optional.empty(), injector.getInjectableExact("counter0", Integer.class));
+        assertEquals(4, injector.get("counter4", Integer.class).orElse(null));
+        assertThrows(InjectorException.class, () -> frozen.setEvictableLimit(1));
+    }
+
+    @Test
+    public void test_evictable_injectables_forgotten() throws Exception {
+
+        OkaeriInjector injector = OkaeriInjector.create();
+        Api api = new Api("held");
+        List<WeakReference<Injectable<?>>> removed = new ArrayList<>();
+
+        // removed before expiring or being collected, not kept by the eviction bookkeeping
+        for (int i = 0; i < 100; i++) {
+            Injectable<Api> weak = Injectable.weak("weak" + i, api, Api.class);
+            Injectable<Api> expiring = Injectable.expiring("expiring" + i, api, Api.class, Duration.ofHours(1));
+            injector.register(weak).register(expiring);
+            removed.add(new WeakReference<>(weak));
+            removed.add(new WeakReference<>(expiring));
+        }
+        injector.register(Injectable.expiring("kept", api, Api.class, Duration.ofHours(1)));
+        injector.removeIf(injectable -> !"kept".equals(injectable.getName()));
+
+        for (int i = 0; (i < 100) && removed.stream().anyMatch(reference -> reference.get() != null); i++) {
+            System.gc();
+            Thread.sleep(10);
+        }
+        assertTrue(removed.stream().allMatch(reference -> reference.get() == null));
+        assertEquals(api, injector.getOrThrow("kept", Api.class));
+        assertEquals(1, injector.all().size());
+    }
+
+    @Test
+    public void test_metadata_cache() throws Exception {
+
+        Path file = Files.createTempFile("okaeri-injector", ".cache");
+        Files.write(file, new byte[]{1, 2, 3});
+
+        try {
+            // invalid file is discarded
+            MetadataCache cache = MetadataCache.install(file);
+            assertEquals(0, cache.size());
+
+            // corrupt length prefix is rejected before allocating
+            Files.write(file, ByteBuffer.allocate(16).putInt(0x4F4B4943).putInt(2).putInt(1).putInt(Integer.MAX_VALUE).array());
+            assertEquals(0, MetadataCache.install(file).size());
+            Files.write(file, ByteBuffer.allocate(12).putInt(0x4F4B4943).putInt(2).putInt(-1).array());
+            assertEquals(0, MetadataCache.install(file).size());
+            cache = MetadataCache.install(file);
+
+            Injector injector = OkaeriInjector.create().registerInjectable(new Api("cached"));
+            Class<?> scanned = new IsolatingClassLoader(Worker.class).loadClass(Worker.class.getName());
+            assertEquals(3, scanned.getField("counter").getInt(injector.createInstance(scanned)));
+            assertEquals(1, cache.size());
+            cache.save();
+
+            // fresh class resolved from the file, post construct order is preserved
+            assertEquals(1, MetadataCache.install(file).size());
+            Class<?> cached = new IsolatingClassLoader(Worker.class).loadClass(Worker.class.getName());
+            assertEquals(3, cached.getField("counter").getInt(injector.createInstance(cached)));
+        } finally {
+            MetadataCache.uninstall();
+            Files.deleteIfExists(file);
+        }
+    }
+
+    @Test
+    public void test_shutdown() throws Exception {
+
+        Queue<String> log = new ConcurrentLinkedQueue<>();
+        OkaeriInjector injector = OkaeriInjector.create();
+        injector.registerInjectable("shutdown", log, Queue.class)
+            .registerInjectable(new Database());
+
+        injector.registerInjectable(injector.createInstance(Repository.class));
+        Object[] created = {injector.createInstance(Scheduler.class), injector.createInstance(Database.class)};
+
+        // created instances are tracked weakly
+        WeakReference<Database> dropped = new WeakReference<>(injector.createInstance(Database.class));
+        for (int i = 0; (i < 100) && (dropped.get() != null); i++) {
+            System.gc();
+            Thread.sleep(10);
+        }
+        assertEquals(null, dropped.get());
+
+        // failure does not stop the dependencies from being destroyed
+        ExecutorService executor = Executors.newCachedThreadPool();
+        InjectorException exception = assertThrows(InjectorException.class, () -> injector.shutdown(executor, Duration.ofSeconds(5)));
+        assertEquals("tasks still running", exception.getCause().getCause().getCause().getMessage());
+        executor.shutdown();
+
+        List<String> order = new ArrayList<>(log);
+        assertEquals(5, order.size());
+        // dependents first, the other database is independent
+        assertEquals(Arrays.asList("scheduler", "flush", "repository"), order.stream().filter(entry -> !entry.equals("database")).collect(Collectors.toList()));
+        assertEquals(4, order.lastIndexOf("database"));
+        assertEquals(Scheduler.class, created[0].getClass());
+
+        injector.close();
+        assertEquals(5, log.size());
+    }
+
+    @Test
+    public void test_instance_allocator() {
+
+        // no default constructor
+        assertThrows(InjectorException.class, () -> OkaeriInjector.create().createInstance(Api.class));
+        assertEquals("Api(name=null)", OkaeriInjector.create(true).createInstance(Api.class).toString());
+
+        OkaeriInjector injector = OkaeriInjector.create()
+            .setInstanceAllocator(InstanceAllocator.firstOf(type -> (type == Api.class) ? () -> new Api("allocated") : null, InstanceAllocator.constructor()));
+        assertEquals("Api(name=allocated)", injector.createInstance(Api.class).toString());
+        assertEquals(Database.class, injector.createInstance(Database.class).getClass());
+
+        // thrown by the constructor, not wrapped by the allocator
+        InjectorException exception = assertThrows(InjectorException.class, () -> injector.createInstance(Faulty.class));
+        assertEquals(IllegalStateException.class, exception.getCause().getClass());
+    }
+
+    @Test
+    public void test_hot_swap() throws Exception {
+
+        Database first = new Database();
+        Queue<String> log = new ConcurrentLinkedQueue<>();
+        OkaeriInjector injector = OkaeriInjector.create().setHotSwap(true);
+        injector.registerInjectable("shutdown", log, Queue.class)
+            .registerInjectable(first);
+
+        Repository repository = injector.createInstance(Repository.class);
+        Repository untracked = injector.child().setHotSwap(false).createInstance(Repository.class);
+        assertEquals(first, repository.getDatabase());
+
+        // newer injectable of the field type
+        Database second = new Database();
+        injector.registerInjectable(second);
+        assertEquals(second, repository.getDatabase());
+        assertEquals(first, untracked.getDatabase());
+
+        // replaced by name
+        Queue<String> replaced = new ConcurrentLinkedQueue<>();
+        injector.registerExclusive("shutdown", replaced, Queue.class);
+        assertEquals(replaced, repository.getLog());
+        assertEquals(log, untracked.getLog());
+
+        // removed, previous one is resolved again
+        injector.removeIf(injectable -> injectable.getObject() == second);
+        assertEquals(first, repository.getDatabase());
+
+        // cannot be resolved, value is kept but the removed injectable is not retained
+        WeakReference<Injectable<Database>> removed = new WeakReference<>(injector.getInjectableExact("", Database.class).get());
+        injector.removeIf(injectable -> injectable.getObject() instanceof Database);
+        assertEquals(first, repository.getDatabase());
+        for (int i = 0; (i < 100) && (removed.get() != null); i++) {
+            System.gc();
+            Thread.sleep(10);
+        }
+        assertEquals(null, removed.get());
+
+        // still tracked after being unbound
+        Database third = new Database();
+        injector.registerInjectable(third);
+        assertEquals(third, repository.getDatabase());
+
+        // same for the fields bound by name, unrelated changes keep the value
+        injector.removeIf(injectable -> "shutdown".equals(injectable.getName()));
+        injector.registerInjectable("other", new ConcurrentLinkedQueue<String>(), Queue.class);
+        assertEquals(replaced, repository.getLog());
+        Queue<String> restored = new ConcurrentLinkedQueue<>();
+        injector.registerInjectable("shutdown", restored, Queue.class);
+        assertEquals(restored, repository.getLog());
+    }
+
+    @Test
+    public void test_wiring_profile() {
+
+        WiringProfile profile = new WiringProfile();
+        OkaeriInjector injector = OkaeriInjector.create().setListener(profile);
+        injector.registerInjectable("injector", injector, Injector.class)
+            .registerInjectable(new Api("api"));
+
+        injector.createInstance(Bootstrap.class);
+        assertThrows(InjectorException.class, () -> injector.createInstance(Service.class));
+
+        List<WiringProfile.Node> roots = profile.getRoots();
+        assertEquals(2, roots.size());
+        WiringProfile.Node bootstrap = roots.stream().filter(node -> node.getType() == Bootstrap.class).findFirst().get();
+        assertTrue(roots.stream().anyMatch(node -> (node.getType() == Service.class) && node.isFailed()));
+
+        // created from the post construct
+        assertEquals(1, bootstrap.getChildren().size());
+        WiringProfile.Node worker = bootstrap.getChildren().get(0);
+        assertEquals(Worker.class, worker.getType());
+        assertEquals(Arrays.asList("initializeFirst", "initializeAfterFirst", "initialize"), worker.getPostConstructs().stream()
+            .map(timing -> timing.getMethod().getName())
+            .collect(Collectors.toList()));
+        assertTrue(bootstrap.getTotalNanos() >= worker.getTotalNanos());
+
+        String dump = profile.dump();
+        assertTrue(dump.contains("  " + Worker.class.getName() + " (construction "), dump);
+        assertTrue(dump.contains("@PostConstruct(order = 1) initializeAfterFirst()"), dump);
+
+        profile.reset();
+        assertEquals(0, profile.getRoots().size());
+    }
+
+    @Test
+    public void test_flight_recorder_events() throws IOException {
+
+        assertTrue(FlightRecorderEvents.isAvailable());
+        InjectorListener listener = FlightRecorderEvents.listener().get();
+        OkaeriInjector injector = OkaeriInjector.create().setListener(listener);
+        injector.registerInjectable(new Api("api"));
+
+        Path file = Files.createTempFile("injector", ".jfr");
+        try {
+            try (Recording recording = new Recording()) {
+                recording.enable("eu.okaeri.injector.CreateInstance");
+                recording.enable("eu.okaeri.injector.PostConstruct");
+                recording.enable("eu.okaeri.injector.ResolutionFailure");
+                recording.start();
+                assertTrue(listener.isEnabled());
+                injector.createInstance(Worker.class);
+                assertThrows(InjectorException.class, () -> injector.createInstance(Service.class));
+                recording.stop();
+                recording.dump(file);
+            }
+            assertTrue(!listener.isEnabled());
+
+            Map<String, List<RecordedEvent>> events = RecordingFile.readAllEvents(file).stream()
+                .filter(event -> event.getEventType().getName().startsWith("eu.okaeri.injector."))
+                .collect(Collectors.groupingBy(event -> event.getEventType().getName()));
+
+            assertEquals(Worker.class.getName(), events.get("eu.okaeri.injector.CreateInstance").get(0).getClass("type").getName());
+            assertEquals(Arrays.asList(0, 1, Integer.MAX_VALUE), events.get("eu.okaeri.injector.PostConstruct").stream()
+                .map(event -> event.getInt("order"))
+                .collect(Collectors.toList()));
+            RecordedEvent failure = events.get("eu.okaeri.injector.ResolutionFailure").get(0);
+            assertEquals(Service.class.getName(), failure.getClass("owner").getName());
+            assertEquals(Storage.class.getName(), failure.getClass("type").getName());
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    /**
+     * Defines its own copy of the class, so the injector sees it for the first time.
+     */
+    private static final class IsolatingClassLoader extends ClassLoader {
+
+        private final String name;
+
+        private IsolatingClassLoader(Class<?> type) {
+            super(type.getClassLoader());
+            this.name = type.getName();
+        }
+
+        @Override
+        protected Class<?> loadClass(String name, boolean resolve) throws ClassNotFoundException {
+
+            if (!this.name.equals(name)) {
+                return super.loadClass(name, resolve);
+            }
+
+            synchronized (this.getClassLoadingLock(name)) {
+                Class<?> loaded = this.findLoadedClass(name);
+                if (loaded != null) {
+                    return loaded;
+                }
+                try (InputStream in = this.getResourceAsStream(name.replace('.', '/') + ".class")) {
+                    ByteArrayOutputStream out = new ByteArrayOutputStream();
+                    byte[] buffer = new byte[8192];
+                    for (int read; (read = in.read(buffer)) != -1; ) {
+                        out.write(buffer, 0, read);
+                    }
+                    return this.defineClass(name, out.toByteArray(), 0, out.size());
+                } catch (IOException exception) {
+                    throw new ClassNotFoundException(name, exception);
+                }
+            }
+        }
+    }
+}
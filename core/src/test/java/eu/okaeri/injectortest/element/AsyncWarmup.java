@@ -0,0 +1,40 @@
+package eu.okaeri.injectortest.element;
+
+import eu.okaeri.injector.annotation.Inject;
+import eu.okaeri.injector.annotation.PostConstruct;
+import lombok.Getter;
+
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.TimeUnit;
+
+@Getter
+public class AsyncWarmup {
+
+    private final CyclicBarrier barrier = new CyclicBarrier(2);
+    private volatile boolean cacheLoaded;
+    private volatile boolean connectionChecked;
+
+    @Inject
+    private Api api;
+
+    @PostConstruct(order = 1, async = true)
+    private void loadCache() throws Exception {
+        // both methods of the order have to run at the same time to pass the barrier
+        this.barrier.await(5, TimeUnit.SECONDS);
+        this.cacheLoaded = true;
+    }
+
+    @PostConstruct(order = 1, async = true)
+    private String checkConnection() throws Exception {
+        this.barrier.await(5, TimeUnit.SECONDS);
+        this.connectionChecked = true;
+        return "connected";
+    }
+
+    @PostConstruct(order = 2)
+    private void ready() {
+        if (!this.cacheLoaded || !this.connectionChecked) {
+            throw new IllegalStateException("ready before warmup");
+        }
+    }
+}
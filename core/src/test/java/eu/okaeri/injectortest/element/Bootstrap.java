@@ -0,0 +1,16 @@
+package eu.okaeri.injectortest.element;
+
+import eu.okaeri.injector.Injector;
+import eu.okaeri.injector.annotation.PostConstruct;
+import lombok.Getter;
+
+@Getter
+public class Bootstrap {
+
+    private Worker worker;
+
+    @PostConstruct(order = 0)
+    private void start(Injector injector) {
+        this.worker = injector.createInstance(Worker.class);
+    }
+}
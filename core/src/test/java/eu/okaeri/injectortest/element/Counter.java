@@ -0,0 +1,22 @@
+package eu.okaeri.injectortest.element;
+
+import eu.okaeri.injector.annotation.Inject;
+import eu.okaeri.injector.annotation.PostConstruct;
+import lombok.Getter;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+@Getter
+public class Counter {
+
+    public static final AtomicInteger CREATED = new AtomicInteger();
+
+    @Inject
+    private Api api;
+
+    @PostConstruct
+    private void setup() throws InterruptedException {
+        Thread.sleep(50);
+        CREATED.incrementAndGet();
+    }
+}
@@ -0,0 +1,9 @@
+package eu.okaeri.injectortest.element;
+
+import eu.okaeri.injector.annotation.Inject;
+
+public class CycleA {
+
+    @Inject
+    private CycleB cycleB;
+}
@@ -0,0 +1,9 @@
+package eu.okaeri.injectortest.element;
+
+import eu.okaeri.injector.annotation.Inject;
+
+public class CycleB {
+
+    @Inject
+    private CycleA cycleA;
+}
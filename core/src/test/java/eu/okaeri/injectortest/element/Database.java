@@ -0,0 +1,14 @@
+package eu.okaeri.injectortest.element;
+
+import eu.okaeri.injector.annotation.Inject;
+import eu.okaeri.injector.annotation.PreDestroy;
+
+import java.util.Queue;
+
+public class Database {
+
+    @PreDestroy
+    private void disconnect(@Inject("shutdown") Queue<String> log) {
+        log.add("database");
+    }
+}
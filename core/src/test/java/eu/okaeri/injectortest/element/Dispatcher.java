@@ -0,0 +1,30 @@
+package eu.okaeri.injectortest.element;
+
+import eu.okaeri.injector.annotation.Inject;
+import lombok.Getter;
+
+@Getter
+public class Dispatcher {
+
+    private final Api api;
+
+    @Inject
+    public Dispatcher(Api api) {
+        this.api = api;
+    }
+
+    private String dispatch(Api api, @Inject("command") String command) {
+        return command + ":" + api;
+    }
+
+    public static String describe(@Inject("command") String command) {
+        return "command " + command;
+    }
+
+    public static String fail(@Inject("command") String command) {
+        if ("error".equals(command)) {
+            throw new AssertionError(command);
+        }
+        throw new IllegalStateException(command);
+    }
+}
@@ -0,0 +1,8 @@
+package eu.okaeri.injectortest.element;
+
+public class Faulty {
+
+    public Faulty() {
+        throw new IllegalStateException("faulty");
+    }
+}
@@ -0,0 +1,16 @@
+package eu.okaeri.injectortest.element;
+
+import eu.okaeri.injector.Lazy;
+import eu.okaeri.injector.Provider;
+import eu.okaeri.injector.annotation.Inject;
+import lombok.Getter;
+
+@Getter
+public class LazyWorker {
+
+    @Inject
+    private Provider<Api> api;
+
+    @Inject("api2")
+    private Lazy<Api> api2;
+}
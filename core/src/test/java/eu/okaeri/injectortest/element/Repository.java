@@ -0,0 +1,27 @@
+package eu.okaeri.injectortest.element;
+
+import eu.okaeri.injector.annotation.Inject;
+import eu.okaeri.injector.annotation.PreDestroy;
+import lombok.Getter;
+
+import java.util.Queue;
+
+@Getter
+public class Repository {
+
+    @Inject
+    private Database database;
+
+    @Inject("shutdown")
+    private Queue<String> log;
+
+    @PreDestroy(order = 1)
+    private void close() {
+        this.log.add("repository");
+    }
+
+    @PreDestroy(order = 0)
+    private void flush() {
+        this.log.add("flush");
+    }
+}
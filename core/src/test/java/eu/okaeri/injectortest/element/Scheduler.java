@@ -0,0 +1,24 @@
+package eu.okaeri.injectortest.element;
+
+import eu.okaeri.injector.annotation.Inject;
+import eu.okaeri.injector.annotation.PreDestroy;
+import lombok.Getter;
+
+import java.util.Queue;
+
+@Getter
+public class Scheduler {
+
+    private final Repository repository;
+
+    @Inject
+    public Scheduler(Repository repository) {
+        this.repository = repository;
+    }
+
+    @PreDestroy
+    private void stop(@Inject("shutdown") Queue<String> log) {
+        log.add("scheduler");
+        throw new IllegalStateException("tasks still running");
+    }
+}
@@ -0,0 +1,18 @@
+package eu.okaeri.injectortest.element;
+
+import eu.okaeri.injector.annotation.Inject;
+import lombok.Getter;
+
+@Getter
+public class Service {
+
+    private final Storage storage;
+
+    @Inject("storageName")
+    private String storageName;
+
+    @Inject
+    public Service(Storage storage) {
+        this.storage = storage;
+    }
+}
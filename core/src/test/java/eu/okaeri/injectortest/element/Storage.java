@@ -0,0 +1,17 @@
+package eu.okaeri.injectortest.element;
+
+import eu.okaeri.injector.annotation.Inject;
+import eu.okaeri.injector.annotation.PostConstruct;
+import lombok.Getter;
+
+@Getter
+public class Storage {
+
+    @Inject
+    private Api api;
+
+    @PostConstruct
+    public String storageName() {
+        return "storage-" + this.api;
+    }
+}
@@ -0,0 +1,33 @@
+package eu.okaeri.injectortest.element;
+
+import eu.okaeri.injector.annotation.Inject;
+import eu.okaeri.injector.annotation.PostConstruct;
+import lombok.Getter;
+
+@Getter
+public class Traced {
+
+    private final String name;
+    private final boolean reflectiveConstructor;
+    private boolean reflectivePostConstruct;
+
+    @Inject
+    public Traced(String name) {
+        this.name = name;
+        this.reflectiveConstructor = reflective();
+    }
+
+    @PostConstruct
+    private String trace(Api api) {
+        this.reflectivePostConstruct = reflective();
+        return "traced " + this.name + " with " + api;
+    }
+
+    /**
+     * @return whether the caller of the constructor or method is not the injector itself
+     */
+    private static boolean reflective() {
+        StackTraceElement caller = new Throwable().getStackTrace()[2];
+        return !caller.getClassName().startsWith("eu.okaeri.injector.");
+    }
+}
@@ -0,0 +1,115 @@
+package eu.okaeri.injector.processor;
+
+import javax.annotation.processing.ProcessingEnvironment;
+import javax.tools.Diagnostic;
+import javax.tools.FileObject;
+import javax.tools.StandardLocation;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.UnsupportedEncodingException;
+import java.io.Writer;
+import java.net.URLEncoder;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Writes the index of components read at runtime by {@code eu.okaeri.injector.ComponentIndex}.
+ * <p>
+ * Every line describes a single component: its binary name followed by its dependencies and provided values,
+ * separated by spaces. Dependencies are binary names of the erased types of the injection points, prefixed with
+ * {@code name=} when resolved only by name or {@code name~} when resolved by name falling back to the type.
+ * Values returned by {@code @PostConstruct} methods are listed as {@code +method=type}. Names are URL-encoded
+ * (spaces as {@code %20}), so they never contain the separators.
+ * {@code Provider} and {@code Lazy} injection points are not listed.
+ */
+final class ComponentIndexWriter {
+
+    static final String LOCATION = "META-INF/okaeri-injector/components";
+
+    private final Map<String, String> components = new TreeMap<>();
+
+    void add(InjectorModel model) {
+
+        List<String> dependencies = new ArrayList<>();
+        if (model.constructor != null) {
+            addParameters(dependencies, model.constructor);
+        }
+        for (InjectorModel.FieldModel field : model.fields) {
+            if (field.deferral == null) {
+                dependencies.add(encode(field.name) + (field.exact ? "=" : "~") + field.binaryType);
+            }
+        }
+        for (InjectorModel.MethodModel method : model.postConstructs) {
+            addParameters(dependencies, method.parameters);
+        }
+        for (InjectorModel.MethodModel method : model.postConstructs) {
+            if (!method.returnsVoid) {
+                dependencies.add("+" + encode(method.name) + "=" + method.returnType);
+            }
+        }
+
+        StringBuilder line = new StringBuilder(model.binaryName);
+        for (String dependency : dependencies) {
+            line.append(' ').append(dependency);
+        }
+        this.components.put(model.binaryName, line.toString());
+    }
+
+    /**
+     * Merges with the index left by the previous compilation, so incremental builds keep
+     * components that were not recompiled. Entries of removed classes are dropped.
+     */
+    void write(ProcessingEnvironment env) {
+
+        if (this.components.isEmpty()) {
+            return;
+        }
+
+        Map<String, String> merged = new TreeMap<>(this.components);
+        try {
+            FileObject existing = env.getFiler().getResource(StandardLocation.CLASS_OUTPUT, "", LOCATION);
+            try (BufferedReader reader = new BufferedReader(existing.openReader(true))) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    String name = line.trim().split(" ", 2)[0];
+                    if (name.isEmpty() || name.startsWith("#") || merged.containsKey(name)) {
+                        continue;
+                    }
+                    if (InjectorModel.findType(env.getElementUtils(), name) != null) {
+                        merged.put(name, line.trim());
+                    }
+                }
+            }
+        } catch (IOException | IllegalArgumentException ignored) {
+            // no previous index
+        }
+
+        try (Writer writer = env.getFiler().createResource(StandardLocation.CLASS_OUTPUT, "", LOCATION).openWriter()) {
+            writer.write("# generated by okaeri-injector-processor\n");
+            for (String line : merged.values()) {
+                writer.write(line);
+                writer.write('\n');
+            }
+        } catch (IOException exception) {
+            env.getMessager().printMessage(Diagnostic.Kind.ERROR, "Cannot write component index: " + exception.getMessage());
+        }
+    }
+
+    private static void addParameters(List<String> dependencies, List<InjectorModel.ParameterModel> parameters) {
+        for (InjectorModel.ParameterModel parameter : parameters) {
+            if (parameter.deferral == null) {
+                dependencies.add(parameter.name.isEmpty() ? parameter.binaryType : (encode(parameter.name) + "~" + parameter.binaryType));
+            }
+        }
+    }
+
+    private static String encode(String name) {
+        try {
+            return URLEncoder.encode(name, "UTF-8").replace("+", "%20");
+        } catch (UnsupportedEncodingException exception) {
+            throw new IllegalStateException(exception);
+        }
+    }
+}
@@ -0,0 +1,373 @@
+package eu.okaeri.injector.processor;
+
+import javax.annotation.processing.ProcessingEnvironment;
+import javax.lang.model.element.*;
+import javax.lang.model.type.ArrayType;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.type.WildcardType;
+import javax.lang.model.util.ElementFilter;
+import javax.lang.model.util.Elements;
+import javax.lang.model.util.Types;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Injection points of a single class, as seen by {@code OkaeriInjector} at runtime.
+ */
+final class InjectorModel {
+
+    static final String SUFFIX = "$$Injector";
+    private static final String PROVIDER = "eu.okaeri.injector.Provider";
+    private static final String LAZY = "eu.okaeri.injector.Lazy";
+
+    final String packageName;
+    final String generatedSimpleName;
+    final String typeName;
+    final String binaryName;
+    final boolean instantiable;
+    final boolean ambiguousConstructor;
+    final List<ParameterModel> constructor;
+    final boolean defaultConstructor;
+    final boolean noArgsConstructor;
+    final List<FieldModel> fields = new ArrayList<>();
+    final List<MethodModel> postConstructs = new ArrayList<>();
+    final List<MethodModel> preDestroys = new ArrayList<>();
+
+    private InjectorModel(String packageName, String generatedSimpleName, String typeName, String binaryName, boolean instantiable, boolean ambiguousConstructor, List<ParameterModel> constructor, boolean defaultConstructor, boolean noArgsConstructor) {
+        this.packageName = packageName;
+        this.generatedSimpleName = generatedSimpleName;
+        this.typeName = typeName;
+        this.binaryName = binaryName;
+        this.instantiable = instantiable;
+        this.ambiguousConstructor = ambiguousConstructor;
+        this.constructor = constructor;
+        this.defaultConstructor = defaultConstructor;
+        this.noArgsConstructor = noArgsConstructor;
+    }
+
+    /**
+     * Generated code lives in the package of the type, so the type and all
+     * enclosing types have to be accessible from that package.
+     */
+    static boolean isSupported(TypeElement type) {
+
+        if ((type.getKind() != ElementKind.CLASS)
+            || ((type.getNestingKind() != NestingKind.TOP_LEVEL) && (type.getNestingKind() != NestingKind.MEMBER))) {
+            return false;
+        }
+
+        for (Element element = type; element instanceof TypeElement; element = element.getEnclosingElement()) {
+            if (element.getModifiers().contains(Modifier.PRIVATE)) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    static InjectorModel of(ProcessingEnvironment env, TypeElement type) {
+
+        Types types = env.getTypeUtils();
+        Elements elements = env.getElementUtils();
+        String packageName = env.getElementUtils().getPackageOf(type).getQualifiedName().toString();
+        String binaryName = env.getElementUtils().getBinaryName(type).toString();
+        String simpleBinaryName = packageName.isEmpty() ? binaryName : binaryName.substring(packageName.length() + 1);
+
+        boolean instantiable = !type.getModifiers().contains(Modifier.ABSTRACT)
+            && ((type.getNestingKind() == NestingKind.TOP_LEVEL) || type.getModifiers().contains(Modifier.STATIC));
+
+        // same rules as Class#getConstructors filtered by @Inject
+        List<ExecutableElement> injectConstructors = new ArrayList<>();
+        boolean defaultConstructor = false;
+        for (ExecutableElement constructor : ElementFilter.constructorsIn(type.getEnclosedElements())) {
+            if (!constructor.getModifiers().contains(Modifier.PUBLIC)) {
+                continue;
+            }
+            if (findAnnotation(constructor, InjectorProcessor.INJECT) != null) {
+                injectConstructors.add(constructor);
+            }
+            if (constructor.getParameters().isEmpty()) {
+                defaultConstructor = true;
+            }
+        }
+
+        List<ParameterModel> constructor = null;
+        if (instantiable && (injectConstructors.size() == 1)) {
+            constructor = parameters(types, elements, injectConstructors.get(0));
+        }
+
+        InjectorModel model = new InjectorModel(
+            packageName,
+            simpleBinaryName + SUFFIX,
+            types.erasure(type.asType()).toString(),
+            binaryName,
+            instantiable,
+            injectConstructors.size() > 1,
+            constructor,
+            instantiable && defaultConstructor && isPublic(type),
+            instantiable && defaultConstructor
+        );
+
+        for (VariableElement field : ElementFilter.fieldsIn(type.getEnclosedElements())) {
+            AnnotationMirror inject = findAnnotation(field, InjectorProcessor.INJECT);
+            if (inject == null) {
+                continue;
+            }
+            String value = stringValue(inject, "value", "");
+            Set<Modifier> modifiers = field.getModifiers();
+            model.fields.add(new FieldModel(
+                field.getSimpleName().toString(),
+                value.isEmpty() ? field.getSimpleName().toString() : value,
+                !value.isEmpty(),
+                erasure(types, field.asType()),
+                deferral(types, field.asType()),
+                targetType(types, field.asType()),
+                binaryName(types, elements, field.asType()),
+                modifiers.contains(Modifier.PRIVATE) || modifiers.contains(Modifier.FINAL),
+                modifiers.contains(Modifier.STATIC),
+                modifiers.contains(Modifier.FINAL)
+            ));
+        }
+
+        for (ExecutableElement method : ElementFilter.methodsIn(type.getEnclosedElements())) {
+            AnnotationMirror postConstruct = findAnnotation(method, InjectorProcessor.POST_CONSTRUCT);
+            if (postConstruct != null) {
+                model.postConstructs.add(method(types, elements, method, postConstruct));
+            }
+            AnnotationMirror preDestroy = findAnnotation(method, InjectorProcessor.PRE_DESTROY);
+            if (preDestroy != null) {
+                model.preDestroys.add(method(types, elements, method, preDestroy));
+            }
+        }
+
+        // stable, same as the runtime sort
+        model.postConstructs.sort(Comparator.comparingInt(method -> method.order));
+        model.preDestroys.sort(Comparator.comparingInt(method -> method.order));
+        return model;
+    }
+
+    String getGeneratedName() {
+        return this.packageName.isEmpty() ? this.generatedSimpleName : (this.packageName + "." + this.generatedSimpleName);
+    }
+
+    /**
+     * Resolves the type by its binary name. {@code $} separates nested types but is also legal
+     * in the names themselves, so every reading is tried and checked against the binary name.
+     *
+     * @return type or {@code null} if no such type exists
+     */
+    static TypeElement findType(Elements elements, String binaryName) {
+        return findType(elements, binaryName, binaryName, binaryName.lastIndexOf('.') + 1);
+    }
+
+    private static TypeElement findType(Elements elements, String binaryName, String canonicalName, int from) {
+
+        int separator = canonicalName.indexOf('$', from);
+        if (separator == -1) {
+            TypeElement type = elements.getTypeElement(canonicalName);
+            return ((type != null) && elements.getBinaryName(type).contentEquals(binaryName)) ? type : null;
+        }
+
+        TypeElement type = findType(elements, binaryName, canonicalName, separator + 1);
+        if (type != null) {
+            return type;
+        }
+
+        String nested = canonicalName.substring(0, separator) + "." + canonicalName.substring(separator + 1);
+        return findType(elements, binaryName, nested, separator + 1);
+    }
+
+    private static boolean isPublic(TypeElement type) {
+        for (Element element = type; element instanceof TypeElement; element = element.getEnclosingElement()) {
+            if (!element.getModifiers().contains(Modifier.PUBLIC)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static MethodModel method(Types types, Elements elements, ExecutableElement method, AnnotationMirror annotation) {
+        return new MethodModel(
+            method.getSimpleName().toString(),
+            intValue(annotation, "order", Integer.MAX_VALUE),
+            booleanValue(annotation, "async", false),
+            parameters(types, elements, method),
+            method.getReturnType().getKind() == TypeKind.VOID,
+            binaryName(types, elements, method.getReturnType()),
+            method.getModifiers().contains(Modifier.PRIVATE)
+        );
+    }
+
+    private static List<ParameterModel> parameters(Types types, Elements elements, ExecutableElement executable) {
+        List<ParameterModel> parameters = new ArrayList<>();
+        for (VariableElement parameter : executable.getParameters()) {
+            AnnotationMirror inject = findAnnotation(parameter, InjectorProcessor.INJECT);
+            parameters.add(new ParameterModel(
+                (inject == null) ? "" : stringValue(inject, "value", ""),
+                erasure(types, parameter.asType()),
+                deferral(types, parameter.asType()),
+                targetType(types, parameter.asType()),
+                binaryName(types, elements, parameter.asType())
+            ));
+        }
+        return parameters;
+    }
+
+    private static String erasure(Types types, TypeMirror type) {
+        return types.erasure(type).toString();
+    }
+
+    /**
+     * @return erasure as named by {@code Class#getName}, except for arrays using the {@code []} suffix
+     */
+    private static String binaryName(Types types, Elements elements, TypeMirror type) {
+        TypeMirror erasure = types.erasure(type);
+        if (erasure.getKind() == TypeKind.ARRAY) {
+            return binaryName(types, elements, ((ArrayType) erasure).getComponentType()) + "[]";
+        }
+        if (erasure.getKind() == TypeKind.DECLARED) {
+            return elements.getBinaryName((TypeElement) types.asElement(erasure)).toString();
+        }
+        return erasure.toString();
+    }
+
+    /**
+     * @return {@code provider}, {@code lazy} or {@code null} for regular injection points
+     */
+    private static String deferral(Types types, TypeMirror type) {
+        String erasure = erasure(types, type);
+        if (PROVIDER.equals(erasure)) {
+            return "provider";
+        }
+        if (LAZY.equals(erasure)) {
+            return "lazy";
+        }
+        return null;
+    }
+
+    /**
+     * @return erasure of the injectable type, the type argument for deferred injection points
+     */
+    private static String targetType(Types types, TypeMirror type) {
+
+        if (deferral(types, type) == null) {
+            return erasure(types, type);
+        }
+
+        List<? extends TypeMirror> arguments = ((DeclaredType) type).getTypeArguments();
+        if (arguments.isEmpty()) {
+            return "java.lang.Object";
+        }
+
+        TypeMirror argument = arguments.get(0);
+        if (argument.getKind() == TypeKind.WILDCARD) {
+            TypeMirror bound = ((WildcardType) argument).getExtendsBound();
+            return (bound == null) ? "java.lang.Object" : erasure(types, bound);
+        }
+
+        return erasure(types, argument);
+    }
+
+    static AnnotationMirror findAnnotation(Element element, String annotation) {
+        for (AnnotationMirror mirror : element.getAnnotationMirrors()) {
+            if (mirror.getAnnotationType().toString().equals(annotation)) {
+                return mirror;
+            }
+        }
+        return null;
+    }
+
+    private static Object value(AnnotationMirror annotation, String name) {
+        for (Map.Entry<? extends ExecutableElement, ? extends AnnotationValue> entry : annotation.getElementValues().entrySet()) {
+            if (entry.getKey().getSimpleName().contentEquals(name)) {
+                return entry.getValue().getValue();
+            }
+        }
+        return null;
+    }
+
+    static String stringValue(AnnotationMirror annotation, String name, String def) {
+        Object value = value(annotation, name);
+        return (value == null) ? def : (String) value;
+    }
+
+    static int intValue(AnnotationMirror annotation, String name, int def) {
+        Object value = value(annotation, name);
+        return (value == null) ? def : (Integer) value;
+    }
+
+    static boolean booleanValue(AnnotationMirror annotation, String name, boolean def) {
+        Object value = value(annotation, name);
+        return (value == null) ? def : (Boolean) value;
+    }
+
+    static final class ParameterModel {
+
+        final String name;
+        final String type;
+        final String deferral;
+        final String targetType;
+        final String binaryType;
+
+        ParameterModel(String name, String type, String deferral, String targetType, String binaryType) {
+            this.name = name;
+            this.type = type;
+            this.deferral = deferral;
+            this.targetType = targetType;
+            this.binaryType = binaryType;
+        }
+    }
+
+    static final class FieldModel {
+
+        final String field;
+        final String name;
+        final boolean exact;
+        final String type;
+        final String deferral;
+        final String targetType;
+        final String binaryType;
+        final boolean reflective;
+        final boolean staticField;
+        final boolean finalField;
+
+        FieldModel(String field, String name, boolean exact, String type, String deferral, String targetType, String binaryType, boolean reflective, boolean staticField, boolean finalField) {
+            this.field = field;
+            this.name = name;
+            this.exact = exact;
+            this.type = type;
+            this.deferral = deferral;
+            this.targetType = targetType;
+            this.binaryType = binaryType;
+            this.reflective = reflective;
+            this.staticField = staticField;
+            this.finalField = finalField;
+        }
+    }
+
+    static final class MethodModel {
+
+        final String name;
+        final int order;
+        final boolean async;
+        final List<ParameterModel> parameters;
+        final boolean returnsVoid;
+        final String returnType;
+        final boolean reflective;
+
+        MethodModel(String name, int order, boolean async, List<ParameterModel> parameters, boolean returnsVoid, String returnType, boolean reflective) {
+            this.name = name;
+            this.order = order;
+            this.async = async;
+            this.parameters = parameters;
+            this.returnsVoid = returnsVoid;
+            this.returnType = returnType;
+            this.reflective = reflective;
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package eu.okaeri.injector.processor;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.annotation.processing.SupportedOptions;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.*;
+import javax.tools.Diagnostic;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * Generates {@code <Class>$$Injector} implementations of {@code eu.okaeri.injector.generated.GeneratedInjector}
+ * for every class declaring {@code @Inject} fields or constructors or {@code @PostConstruct} methods.
+ * Instantiable classes are also listed in the component index, see {@link ComponentIndexWriter}.
+ * Native-image metadata is written for these classes and classes declaring {@code @PreDestroy} methods,
+ * see {@link NativeImageConfigWriter}.
+ */
+@SupportedOptions(NativeImageConfigWriter.OPTION)
+@SupportedAnnotationTypes({InjectorProcessor.INJECT, InjectorProcessor.POST_CONSTRUCT, InjectorProcessor.PRE_DESTROY})
+public class InjectorProcessor extends AbstractProcessor {
+
+    static final String INJECT = "eu.okaeri.injector.annotation.Inject";
+    static final String POST_CONSTRUCT = "eu.okaeri.injector.annotation.PostConstruct";
+    static final String PRE_DESTROY = "eu.okaeri.injector.annotation.PreDestroy";
+
+    private final ComponentIndexWriter index = new ComponentIndexWriter();
+    private final NativeImageConfigWriter nativeImage = new NativeImageConfigWriter();
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+
+        if (roundEnv.processingOver()) {
+            this.index.write(this.processingEnv);
+            this.nativeImage.write(this.processingEnv);
+            return false;
+        }
+
+        Set<TypeElement> types = new LinkedHashSet<>();
+        Set<TypeElement> destroyables = new LinkedHashSet<>();
+        for (TypeElement annotation : annotations) {
+            boolean preDestroy = annotation.getQualifiedName().contentEquals(PRE_DESTROY);
+            for (Element element : roundEnv.getElementsAnnotatedWith(annotation)) {
+                if ((element.getKind() == ElementKind.FIELD)
+                    || (element.getKind() == ElementKind.CONSTRUCTOR)
+                    || (element.getKind() == ElementKind.METHOD)) {
+                    (preDestroy ? destroyables : types).add((TypeElement) element.getEnclosingElement());
+                }
+            }
+        }
+
+        // pre destroy methods are invoked reflectively, no injector is generated
+        for (TypeElement type : destroyables) {
+            if (!types.contains(type) && (type.getKind() == ElementKind.CLASS)) {
+                this.nativeImage.add(InjectorModel.of(this.processingEnv, type), false);
+            }
+        }
+
+        for (TypeElement type : types) {
+
+            if (type.getKind() != ElementKind.CLASS) {
+                this.processingEnv.getMessager().printMessage(Diagnostic.Kind.NOTE, "Skipping injector generation for inaccessible type", type);
+                continue;
+            }
+
+            InjectorModel model = InjectorModel.of(this.processingEnv, type);
+            boolean supported = InjectorModel.isSupported(type);
+            this.nativeImage.add(model, supported);
+
+            if (!supported) {
+                this.processingEnv.getMessager().printMessage(Diagnostic.Kind.NOTE, "Skipping injector generation for inaccessible type", type);
+                continue;
+            }
+
+            if (model.instantiable) {
+                this.index.add(model);
+            }
+
+            try (Writer writer = this.processingEnv.getFiler().createSourceFile(model.getGeneratedName(), type).openWriter()) {
+                writer.write(new InjectorWriter(model).write());
+            } catch (IOException exception) {
+                this.processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, "Cannot write generated injector: " + exception.getMessage(), type);
+            }
+        }
+
+        return false;
+    }
+}
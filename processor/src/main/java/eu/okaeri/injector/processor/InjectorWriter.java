@@ -0,0 +1,204 @@
+package eu.okaeri.injector.processor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Writes source of the generated injector described by {@link InjectorModel}.
+ */
+final class InjectorWriter {
+
+    private final InjectorModel model;
+    private final StringBuilder out = new StringBuilder();
+
+    InjectorWriter(InjectorModel model) {
+        this.model = model;
+    }
+
+    String write() {
+
+        String type = this.model.typeName;
+
+        if (!this.model.packageName.isEmpty()) {
+            this.line("package " + this.model.packageName + ";").line("");
+        }
+
+        this.line("import eu.okaeri.injector.Injector;");
+        this.line("import eu.okaeri.injector.exception.InjectorException;");
+        this.line("import eu.okaeri.injector.generated.GeneratedInjector;");
+        this.line("import eu.okaeri.injector.generated.GeneratedInjectors;");
+        this.line("");
+        this.line("@SuppressWarnings({\"unchecked\", \"rawtypes\", \"deprecation\", \"static-access\"})");
+        this.line("public final class " + this.model.generatedSimpleName + " implements GeneratedInjector<" + type + "> {");
+        this.line("");
+
+        // reflective access to private members, resolved once
+        boolean reflective = false;
+        for (InjectorModel.FieldModel field : this.model.fields) {
+            if (field.reflective) {
+                this.line("    private static final java.lang.reflect.Field FIELD_" + field.field + " = GeneratedInjectors.field(" + type + ".class, \"" + field.field + "\");");
+                reflective = true;
+            }
+        }
+        for (int i = 0; i < this.model.postConstructs.size(); i++) {
+            InjectorModel.MethodModel method = this.model.postConstructs.get(i);
+            if (method.reflective) {
+                this.line("    private static final java.lang.reflect.Method METHOD_" + i + " = GeneratedInjectors.method(" + type + ".class, \"" + method.name + "\"" + classLiterals(method.parameters) + ");");
+                reflective = true;
+            }
+        }
+        if (reflective) {
+            this.line("");
+        }
+
+        // build-time plan
+        List<String> flags = new ArrayList<>();
+        if (this.model.ambiguousConstructor) {
+            flags.add("AMBIGUOUS_CONSTRUCTOR");
+        }
+        if (this.model.postConstructs.stream().anyMatch(method -> method.async)) {
+            flags.add("ASYNC_POST_CONSTRUCTS");
+        }
+        if (!this.model.preDestroys.isEmpty()) {
+            flags.add("PRE_DESTROYS");
+        }
+        this.line("    @Override");
+        this.line("    public int getFlags() {");
+        this.line("        return " + (flags.isEmpty() ? "0" : String.join(" | ", flags)) + ";");
+        this.line("    }");
+        this.line("");
+
+        // constructor
+        this.line("    @Override");
+        this.line("    public " + type + " newInstance(Injector injector) {");
+        if (this.model.constructor != null) {
+            this.resolveParameters(this.model.constructor, "        ");
+            this.line("        try {");
+            this.line("            return new " + type + "(" + arguments(this.model.constructor) + ");");
+            this.line("        } catch (Throwable throwable) {");
+            this.line("            throw GeneratedInjectors.invocationError(\"" + type + "(" + parameterTypes(this.model.constructor) + ")\", throwable);");
+            this.line("        }");
+        } else if (this.model.defaultConstructor && !this.model.ambiguousConstructor) {
+            this.line("        return new " + type + "();");
+        } else {
+            this.line("        return null;");
+        }
+        this.line("    }");
+        this.line("");
+
+        // fields
+        this.line("    @Override");
+        this.line("    public void injectFields(Injector injector, " + type + " instance) {");
+        for (InjectorModel.FieldModel field : this.model.fields) {
+            String value = (field.deferral != null)
+                ? ("GeneratedInjectors." + field.deferral + "(injector, \"" + escape(field.name) + "\", " + field.exact + ", " + field.targetType + ".class)")
+                : ("GeneratedInjectors.resolveField(injector, " + type + ".class, \"" + field.field + "\", \"" + escape(field.name) + "\", " + field.exact + ", " + field.type + ".class)");
+            if (field.reflective) {
+                this.line("        GeneratedInjectors.set(FIELD_" + field.field + ", instance, " + value + ");");
+            } else {
+                this.line("        " + (field.staticField ? type : "instance") + "." + field.field + " = (" + field.type + ") " + value + ";");
+            }
+        }
+        this.line("    }");
+        this.line("");
+
+        // post constructs
+        this.line("    @Override");
+        this.line("    public void invokePostConstructs(Injector injector, " + type + " instance) {");
+        for (int i = 0; i < this.model.postConstructs.size(); i++) {
+            this.line("        this.postConstruct" + i + "(injector, instance);");
+        }
+        this.line("    }");
+
+        for (int i = 0; i < this.model.postConstructs.size(); i++) {
+
+            InjectorModel.MethodModel method = this.model.postConstructs.get(i);
+            boolean result = method.reflective || !method.returnsVoid;
+
+            this.line("");
+            this.line("    private void postConstruct" + i + "(Injector injector, " + type + " instance) {");
+            this.line("        try {");
+            this.resolveParameters(method.parameters, "            ");
+            if (result) {
+                this.line("            Object result;");
+            }
+            this.line("            try {");
+            if (method.reflective) {
+                String args = method.parameters.isEmpty() ? "" : (", " + arguments(method.parameters, false));
+                this.line("                result = GeneratedInjectors.invoke(METHOD_" + i + ", instance" + args + ");");
+            } else {
+                this.line("                " + (result ? "result = " : "") + "instance." + method.name + "(" + arguments(method.parameters) + ");");
+            }
+            this.line("            } catch (Throwable throwable) {");
+            this.line("                throw GeneratedInjectors.invocationError(\"" + type + "#" + method.name + "(" + parameterTypes(method.parameters) + ")\", throwable);");
+            this.line("            }");
+            if (result) {
+                this.line("            GeneratedInjectors.register(injector, \"" + method.name + "\", result);");
+            }
+            this.line("        } catch (InjectorException exception) {");
+            this.line("            throw GeneratedInjectors.postConstructError(" + type + ".class, exception);");
+            this.line("        }");
+            this.line("    }");
+        }
+
+        this.line("}");
+        return this.out.toString();
+    }
+
+    private void resolveParameters(List<InjectorModel.ParameterModel> parameters, String indent) {
+        for (int i = 0; i < parameters.size(); i++) {
+            InjectorModel.ParameterModel parameter = parameters.get(i);
+            if (parameter.deferral != null) {
+                this.line(indent + "Object arg" + i + " = GeneratedInjectors." + parameter.deferral + "(injector, \"" + escape(parameter.name) + "\", false, " + parameter.targetType + ".class);");
+                continue;
+            }
+            this.line(indent + "Object arg" + i + " = GeneratedInjectors.resolveParameter(injector, \"" + escape(parameter.name) + "\", " + parameter.type + ".class);");
+        }
+    }
+
+    private static String arguments(List<InjectorModel.ParameterModel> parameters) {
+        return arguments(parameters, true);
+    }
+
+    private static String arguments(List<InjectorModel.ParameterModel> parameters, boolean cast) {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < parameters.size(); i++) {
+            if (i > 0) {
+                builder.append(", ");
+            }
+            if (cast) {
+                builder.append("(").append(parameters.get(i).type).append(") ");
+            }
+            builder.append("arg").append(i);
+        }
+        return builder.toString();
+    }
+
+    private static String parameterTypes(List<InjectorModel.ParameterModel> parameters) {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < parameters.size(); i++) {
+            if (i > 0) {
+                builder.append(",");
+            }
+            builder.append(parameters.get(i).type);
+        }
+        return builder.toString();
+    }
+
+    private static String classLiterals(List<InjectorModel.ParameterModel> parameters) {
+        StringBuilder builder = new StringBuilder();
+        for (InjectorModel.ParameterModel parameter : parameters) {
+            builder.append(", ").append(parameter.type).append(".class");
+        }
+        return builder.toString();
+    }
+
+    private static String escape(String value) {
+        return value.replace("\\", "\\\\").replace("\"", "\\\"");
+    }
+
+    private InjectorWriter line(String line) {
+        this.out.append(line).append('\n');
+        return this;
+    }
+}
@@ -0,0 +1,151 @@
+package eu.okaeri.injector.processor;
+
+import javax.annotation.processing.ProcessingEnvironment;
+import javax.tools.Diagnostic;
+import javax.tools.FileObject;
+import javax.tools.StandardLocation;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Writes the GraalVM native-image reachability metadata of the processed classes, picked up automatically
+ * from {@code META-INF/native-image} when building an image.
+ * <p>
+ * {@code reflect-config.json} registers exactly the members accessed reflectively by {@code OkaeriInjector}:
+ * {@code @Inject} fields and constructors, the public no-args constructor, {@code @PostConstruct} and
+ * {@code @PreDestroy} methods, unsafe allocation of instantiable classes and the constructors of generated
+ * injectors. {@code resource-config.json} includes the component index. Every class is written as a single
+ * line, so the files of the previous compilation can be merged without a JSON parser.
+ */
+final class NativeImageConfigWriter {
+
+    static final String OPTION = "okaeri.injector.native.id";
+    static final String DEFAULT_ID = "generated";
+    static final String LOCATION = "META-INF/native-image/okaeri-injector/";
+
+    private final Map<String, String> entries = new TreeMap<>();
+    private boolean components;
+
+    void add(InjectorModel model, boolean generated) {
+
+        List<String> fields = new ArrayList<>();
+        for (InjectorModel.FieldModel field : model.fields) {
+            fields.add("{\"name\":" + quote(field.field) + (field.finalField ? ",\"allowWrite\":true" : "") + "}");
+        }
+
+        List<String> methods = new ArrayList<>();
+        if (model.constructor != null) {
+            methods.add(method("<init>", model.constructor));
+        }
+        if (model.noArgsConstructor && ((model.constructor == null) || !model.constructor.isEmpty())) {
+            methods.add(method("<init>", new ArrayList<>()));
+        }
+        for (InjectorModel.MethodModel method : model.postConstructs) {
+            methods.add(method(method.name, method.parameters));
+        }
+        for (InjectorModel.MethodModel method : model.preDestroys) {
+            methods.add(method(method.name, method.parameters));
+        }
+
+        StringBuilder entry = new StringBuilder("{\"name\":").append(quote(model.binaryName));
+        if (!fields.isEmpty()) {
+            entry.append(",\"fields\":[").append(String.join(",", fields)).append(']');
+        }
+        if (!methods.isEmpty()) {
+            entry.append(",\"methods\":[").append(String.join(",", methods)).append(']');
+        }
+        if (model.instantiable) {
+            entry.append(",\"unsafeAllocated\":true");
+        }
+        this.entries.put(model.binaryName, entry.append('}').toString());
+
+        if (generated) {
+            String generatedName = model.getGeneratedName();
+            this.entries.put(generatedName, "{\"name\":" + quote(generatedName) + ",\"methods\":[{\"name\":\"<init>\",\"parameterTypes\":[]}]}");
+        }
+
+        this.components |= model.instantiable && generated;
+    }
+
+    /**
+     * Merges with the metadata left by the previous compilation, entries of removed classes are dropped.
+     */
+    void write(ProcessingEnvironment env) {
+
+        if (this.entries.isEmpty()) {
+            return;
+        }
+
+        String id = env.getOptions().getOrDefault(OPTION, DEFAULT_ID);
+        String location = LOCATION + id + "/reflect-config.json";
+
+        Map<String, String> merged = new TreeMap<>(this.entries);
+        try {
+            FileObject existing = env.getFiler().getResource(StandardLocation.CLASS_OUTPUT, "", location);
+            try (BufferedReader reader = new BufferedReader(existing.openReader(true))) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    String entry = line.trim();
+                    if (!entry.startsWith("{\"name\":\"")) {
+                        continue;
+                    }
+                    if (entry.endsWith(",")) {
+                        entry = entry.substring(0, entry.length() - 1);
+                    }
+                    String name = entry.substring(9, entry.indexOf('"', 9));
+                    if (merged.containsKey(name)) {
+                        continue;
+                    }
+                    // generated injector is kept while its origin class exists
+                    String origin = name.endsWith(InjectorModel.SUFFIX) ? name.substring(0, name.length() - InjectorModel.SUFFIX.length()) : name;
+                    if (InjectorModel.findType(env.getElementUtils(), origin) != null) {
+                        merged.put(name, entry);
+                    }
+                }
+            }
+        } catch (IOException | IllegalArgumentException ignored) {
+            // no previous metadata
+        }
+
+        try (Writer writer = env.getFiler().createResource(StandardLocation.CLASS_OUTPUT, "", location).openWriter()) {
+            writer.write("[\n");
+            int remaining = merged.size();
+            for (String entry : merged.values()) {
+                writer.write("  ");
+                writer.write(entry);
+                writer.write((--remaining > 0) ? ",\n" : "\n");
+            }
+            writer.write("]\n");
+        } catch (IOException exception) {
+            env.getMessager().printMessage(Diagnostic.Kind.ERROR, "Cannot write native-image metadata: " + exception.getMessage());
+            return;
+        }
+
+        if (!this.components) {
+            return;
+        }
+
+        try (Writer writer = env.getFiler().createResource(StandardLocation.CLASS_OUTPUT, "", LOCATION + id + "/resource-config.json").openWriter()) {
+            writer.write("{\"resources\":{\"includes\":[{\"pattern\":\"\\\\Q" + ComponentIndexWriter.LOCATION + "\\\\E\"}]}}\n");
+        } catch (IOException exception) {
+            env.getMessager().printMessage(Diagnostic.Kind.ERROR, "Cannot write native-image metadata: " + exception.getMessage());
+        }
+    }
+
+    private static String method(String name, List<InjectorModel.ParameterModel> parameters) {
+        List<String> types = new ArrayList<>();
+        for (InjectorModel.ParameterModel parameter : parameters) {
+            types.add(quote(parameter.binaryType));
+        }
+        return "{\"name\":" + quote(name) + ",\"parameterTypes\":[" + String.join(",", types) + "]}";
+    }
+
+    private static String quote(String value) {
+        return "\"" + value.replace("\\", "\\\\").replace("\"", "\\\"") + "\"";
+    }
+}
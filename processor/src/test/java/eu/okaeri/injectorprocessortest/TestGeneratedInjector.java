@@ -0,0 +1,296 @@
+package eu.okaeri.injectorprocessortest;
+
+import eu.okaeri.injector.ComponentGraph;
+import eu.okaeri.injector.ComponentIndex;
+import eu.okaeri.injector.OkaeriInjector;
+import eu.okaeri.injector.annotation.Inject;
+import eu.okaeri.injector.annotation.PostConstruct;
+import eu.okaeri.injector.annotation.PreDestroy;
+import eu.okaeri.injector.exception.InjectorException;
+import eu.okaeri.injector.generated.GeneratedInjector;
+import eu.okaeri.injectorprocessortest.element.Config;
+import eu.okaeri.injectorprocessortest.element.Controller;
+import eu.okaeri.injectorprocessortest.element.Database;
+import eu.okaeri.injectorprocessortest.element.Labels;
+import eu.okaeri.injectorprocessortest.element.Pool;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Executable;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public final class TestGeneratedInjector {
+
+    private static final Config CONFIG = new Config("jdbc:h2:default");
+    private static final Config MAIN_CONFIG = new Config("jdbc:h2:main");
+    private static final List<String> TAGS = Arrays.asList("a", "b");
+    private static final String[] VALUES = {"x", "y"};
+
+    private static OkaeriInjector injector(boolean generated) {
+        OkaeriInjector injector = OkaeriInjector.create().setGenerated(generated);
+        injector.registerInjectable(CONFIG)
+            .registerInjectable("mainConfig", MAIN_CONFIG)
+            .registerInjectable("databaseName", "main-db")
+            .registerInjectable("tags", TAGS, List.class)
+            .registerInjectable("limit", 10, int.class)
+            .registerInjectable(VALUES)
+            .registerInjectable("display name", "Main")
+            .registerInjectable("+prefix", ">")
+            .registerInjectable("key=value~other", "pair");
+        return injector;
+    }
+
+    @Test
+    public void test_generated_classes() throws Exception {
+        for (Class<?> type : Arrays.asList(Database.class, Controller.class, Controller.Nested.class)) {
+            Class<?> generated = Class.forName(type.getName() + GeneratedInjector.SUFFIX);
+            assertTrue(GeneratedInjector.class.isAssignableFrom(generated));
+            // planned from the build-time flags instead of a reflective scan
+            assertEquals(0, ((GeneratedInjector<?>) generated.getConstructor().newInstance()).getFlags());
+        }
+        assertThrows(ClassNotFoundException.class, () -> Class.forName(Config.class.getName() + GeneratedInjector.SUFFIX));
+    }
+
+    @Test
+    public void test_generated_same_as_reflective() {
+
+        OkaeriInjector generatedInjector = injector(true);
+        OkaeriInjector reflectiveInjector = injector(false);
+
+        Database database = generatedInjector.createInstance(Database.class);
+        Database reflectiveDatabase = reflectiveInjector.createInstance(Database.class);
+        assertSame(MAIN_CONFIG, database.getConfig());
+        assertEquals("main-db", database.getName());
+        assertSame(reflectiveDatabase.getConfig(), database.getConfig());
+        assertEquals(reflectiveDatabase.getName(), database.getName());
+
+        generatedInjector.registerInjectable(database);
+        reflectiveInjector.registerInjectable(reflectiveDatabase);
+
+        Controller controller = generatedInjector.createInstance(Controller.class);
+        Controller reflectiveController = reflectiveInjector.createInstance(Controller.class);
+        assertSame(database, controller.getDatabase());
+        assertSame(reflectiveDatabase, reflectiveController.getDatabase());
+        assertSame(MAIN_CONFIG, controller.getConfig());
+        assertSame(reflectiveController.getConfig(), controller.getConfig());
+        assertSame(TAGS, controller.getTags());
+        assertSame(reflectiveController.getTags(), controller.getTags());
+        assertEquals(10, controller.getLimit());
+        assertEquals(reflectiveController.getLimit(), controller.getLimit());
+        assertSame(MAIN_CONFIG, controller.getLazyConfig().get());
+        assertSame(reflectiveController.getLazyConfig().get(), controller.getLazyConfig().get());
+        assertEquals(Arrays.asList("first:main-db", "report:jdbc:h2:main", "last"), controller.getCalls());
+        assertEquals(reflectiveController.getCalls(), controller.getCalls());
+        assertEquals("report of main-db", generatedInjector.getExactOrThrow("report", String.class));
+        assertEquals(reflectiveInjector.getExactOrThrow("report", String.class), generatedInjector.getExactOrThrow("report", String.class));
+
+        generatedInjector.registerInjectable(controller);
+        reflectiveInjector.registerInjectable(reflectiveController);
+
+        Controller.Nested nested = generatedInjector.createInstance(Controller.Nested.class);
+        Controller.Nested reflectiveNested = reflectiveInjector.createInstance(Controller.Nested.class);
+        assertSame(controller, nested.getController());
+        assertSame(reflectiveController, reflectiveNested.getController());
+        assertSame(VALUES, nested.getValues());
+        assertSame(reflectiveNested.getValues(), nested.getValues());
+    }
+
+    @Test
+    public void test_generated_missing_dependency() {
+        OkaeriInjector injector = OkaeriInjector.create();
+        assertThrows(RuntimeException.class, () -> injector.createInstance(Database.class));
+        assertThrows(RuntimeException.class, () -> injector.createInstance(Controller.Nested.class));
+    }
+
+    @Test
+    public void test_component_index() {
+
+        ComponentIndex index = ComponentIndex.load(TestGeneratedInjector.class.getClassLoader());
+        assertEquals(new HashSet<>(Arrays.asList(Database.class, Controller.class, Controller.Nested.class, Labels.class)), new HashSet<>(index.getComponents()));
+        assertEquals(Arrays.asList(Config.class.getName(), "databaseName~java.lang.String"), index.getDependencies().get(Database.class));
+        assertTrue(index.getDependencies().get(Controller.class).containsAll(Arrays.asList(
+            "database~" + Database.class.getName(), "mainConfig=" + Config.class.getName(), "limit~int", "+report=java.lang.String")));
+        assertEquals(Collections.singletonList("values~java.lang.Object[]"), index.getDependencies().get(Controller.Nested.class).subList(1, 2));
+
+        // names are encoded, neither split nor read as producers or separators
+        assertEquals(Arrays.asList("display%20name=java.lang.String", "%2Bprefix=java.lang.String", "key%3Dvalue%7Eother=java.lang.String", "report=java.lang.String"), index.getDependencies().get(Labels.class));
+        OkaeriInjector unnamed = injector(true);
+        unnamed.removeIf(injectable -> "+prefix".equals(injectable.getName()));
+        InjectorException missing = assertThrows(InjectorException.class, () -> unnamed.analyze(index));
+        assertTrue(missing.getMessage().contains("+prefix"), missing.getMessage());
+
+        // name~type falls back to the unnamed injectable, name=type does not
+        OkaeriInjector fallback = injector(true);
+        fallback.removeIf(injectable -> "limit".equals(injectable.getName()));
+        fallback.registerInjectable("", 5, int.class);
+        assertEquals(Collections.singleton(Database.class), fallback.analyze(index).getDependencies().get(Controller.class));
+        fallback.removeIf(injectable -> "mainConfig".equals(injectable.getName()));
+        assertThrows(InjectorException.class, () -> fallback.analyze(index));
+
+        OkaeriInjector injector = injector(true);
+        assertEquals(injector.analyze(index.getComponents()).getDependencies(), injector.analyze(index).getDependencies());
+        assertEquals(injector.analyze(index.getComponents()).getWaves(), injector.analyze(index).getWaves());
+
+        // consumer of the post construct value is created after its producer
+        ComponentGraph graph = injector.analyze(index);
+        assertEquals(Collections.singleton(Controller.class), graph.getDependencies().get(Labels.class));
+        List<Class<?>> order = graph.getWaves().stream().flatMap(List::stream).collect(Collectors.toList());
+        assertTrue(order.indexOf(Controller.class) < order.indexOf(Labels.class), order.toString());
+
+        Map<Class<?>, Object> components = injector.createIndexedComponents(TestGeneratedInjector.class.getClassLoader());
+        Controller controller = (Controller) components.get(Controller.class);
+        assertSame(components.get(Database.class), controller.getDatabase());
+        assertSame(controller, ((Controller.Nested) components.get(Controller.Nested.class)).getController());
+        Labels labels = (Labels) components.get(Labels.class);
+        assertEquals(Arrays.asList("Main", ">", "pair", "report of main-db"), Arrays.asList(labels.getDisplayName(), labels.getPrefix(), labels.getPair(), labels.getReport()));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void test_native_image_metadata() throws Exception {
+
+        String location = "META-INF/native-image/okaeri-injector/generated/";
+        Map<String, Map<String, Object>> entries = new HashMap<>();
+        for (Object entry : (List<?>) new Json(resource(location + "reflect-config.json")).value()) {
+            Map<String, Object> map = (Map<String, Object>) entry;
+            entries.put((String) map.get("name"), map);
+        }
+
+        // exactly the members the runtime scan accesses
+        for (Class<?> type : Arrays.asList(Database.class, Controller.class, Controller.Nested.class, Labels.class, Pool.class)) {
+
+            Map<String, Object> entry = entries.get(type.getName());
+            Set<String> fields = Arrays.stream(type.getDeclaredFields())
+                .filter(field -> field.getAnnotation(Inject.class) != null)
+                .map(Field::getName)
+                .collect(Collectors.toSet());
+            Set<String> methods = new HashSet<>();
+            for (Constructor<?> constructor : type.getConstructors()) {
+                if ((constructor.getAnnotation(Inject.class) != null) || (constructor.getParameterCount() == 0)) {
+                    methods.add(signature("<init>", constructor));
+                }
+            }
+            for (Method method : type.getDeclaredMethods()) {
+                if ((method.getAnnotation(PostConstruct.class) != null) || (method.getAnnotation(PreDestroy.class) != null)) {
+                    methods.add(signature(method.getName(), method));
+                }
+            }
+
+            assertEquals(fields, names(entry.get("fields"), field -> (String) field.get("name")), type.getName());
+            assertEquals(methods, names(entry.get("methods"), method -> method.get("name") + "(" + String.join(",", (List<String>) method.get("parameterTypes")) + ")"), type.getName());
+            assertEquals(true, entry.get("unsafeAllocated"));
+        }
+
+        for (Class<?> type : Arrays.asList(Database.class, Controller.class, Controller.Nested.class, Labels.class)) {
+            Map<String, Object> entry = entries.get(type.getName() + GeneratedInjector.SUFFIX);
+            assertEquals(Collections.singleton("<init>()"), names(entry.get("methods"), method -> method.get("name") + "()"));
+        }
+        assertFalse(entries.containsKey(Pool.class.getName() + GeneratedInjector.SUFFIX));
+        assertFalse(entries.containsKey(Config.class.getName()));
+        assertEquals(9, entries.size());
+
+        Map<String, Object> resources = (Map<String, Object>) new Json(resource(location + "resource-config.json")).value();
+        Map<String, Object> include = (Map<String, Object>) ((List<?>) ((Map<String, Object>) resources.get("resources")).get("includes")).get(0);
+        assertTrue(ComponentIndex.LOCATION.matches((String) include.get("pattern")));
+    }
+
+    private static String signature(String name, Executable executable) {
+        return name + "(" + Arrays.stream(executable.getParameterTypes()).map(Class::getTypeName).collect(Collectors.joining(",")) + ")";
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Set<String> names(Object members, java.util.function.Function<Map<String, Object>, String> name) {
+        return (members == null) ? Collections.emptySet() : ((List<?>) members).stream()
+            .map(member -> name.apply((Map<String, Object>) member))
+            .collect(Collectors.toSet());
+    }
+
+    private static String resource(String name) throws IOException {
+        try (InputStream in = TestGeneratedInjector.class.getClassLoader().getResourceAsStream(name)) {
+            assertNotNull(in, name);
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[4096];
+            for (int read; (read = in.read(buffer)) != -1; ) {
+                out.write(buffer, 0, read);
+            }
+            return new String(out.toByteArray(), StandardCharsets.UTF_8);
+        }
+    }
+
+    /**
+     * Minimal JSON reader, enough for the generated metadata.
+     */
+    private static final class Json {
+
+        private final String text;
+        private int position;
+
+        private Json(String text) {
+            this.text = text;
+        }
+
+        private Object value() {
+            char next = this.skip();
+            if (next == '[') {
+                List<Object> list = new ArrayList<>();
+                this.position++;
+                while (this.skip() != ']') {
+                    list.add(this.value());
+                    if (this.skip() == ',') {
+                        this.position++;
+                    }
+                }
+                this.position++;
+                return list;
+            }
+            if (next == '{') {
+                Map<String, Object> map = new LinkedHashMap<>();
+                this.position++;
+                while (this.skip() != '}') {
+                    String key = (String) this.value();
+                    this.skip();
+                    this.position++; // :
+                    map.put(key, this.value());
+                    if (this.skip() == ',') {
+                        this.position++;
+                    }
+                }
+                this.position++;
+                return map;
+            }
+            if (next == '"') {
+                StringBuilder builder = new StringBuilder();
+                for (char current; (current = this.text.charAt(++this.position)) != '"'; ) {
+                    builder.append((current == '\\') ? this.text.charAt(++this.position) : current);
+                }
+                this.position++;
+                return builder.toString();
+            }
+            if (this.text.startsWith("true", this.position)) {
+                this.position += 4;
+                return true;
+            }
+            if (this.text.startsWith("false", this.position)) {
+                this.position += 5;
+                return false;
+            }
+            throw new IllegalArgumentException("Unexpected " + next + " at " + this.position);
+        }
+
+        private char skip() {
+            while (Character.isWhitespace(this.text.charAt(this.position))) {
+                this.position++;
+            }
+            return this.text.charAt(this.position);
+        }
+    }
+}
@@ -0,0 +1,8 @@
+package eu.okaeri.injectorprocessortest.element;
+
+import lombok.Data;
+
+@Data
+public class Config {
+    private final String url;
+}
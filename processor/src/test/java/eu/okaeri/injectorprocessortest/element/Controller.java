@@ -0,0 +1,56 @@
+package eu.okaeri.injectorprocessortest.element;
+
+import eu.okaeri.injector.Lazy;
+import eu.okaeri.injector.annotation.Inject;
+import eu.okaeri.injector.annotation.PostConstruct;
+import lombok.Getter;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Getter
+public class Controller {
+
+    private final List<String> calls = new ArrayList<>();
+
+    @Inject
+    private Database database;
+
+    @Inject("mainConfig")
+    Config config;
+
+    @Inject
+    protected List<String> tags;
+
+    @Inject
+    private int limit;
+
+    @Inject("mainConfig")
+    Lazy<Config> lazyConfig;
+
+    @PostConstruct
+    private void last() {
+        this.calls.add("last");
+    }
+
+    @PostConstruct(order = 1)
+    String report(Config config) {
+        this.calls.add("report:" + config.getUrl());
+        return "report of " + this.database.getName();
+    }
+
+    @PostConstruct(order = 0)
+    public void first(@Inject("databaseName") String name) {
+        this.calls.add("first:" + name);
+    }
+
+    @Getter
+    public static class Nested {
+
+        @Inject
+        private Controller controller;
+
+        @Inject
+        Object[] values;
+    }
+}
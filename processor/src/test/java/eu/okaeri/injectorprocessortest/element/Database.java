@@ -0,0 +1,17 @@
+package eu.okaeri.injectorprocessortest.element;
+
+import eu.okaeri.injector.annotation.Inject;
+import lombok.Getter;
+
+@Getter
+public class Database {
+
+    private final Config config;
+    private final String name;
+
+    @Inject
+    public Database(Config config, @Inject("databaseName") String name) {
+        this.config = config;
+        this.name = name;
+    }
+}
@@ -0,0 +1,20 @@
+package eu.okaeri.injectorprocessortest.element;
+
+import eu.okaeri.injector.annotation.Inject;
+import lombok.Getter;
+
+@Getter
+public class Labels {
+
+    @Inject("display name")
+    private String displayName;
+
+    @Inject("+prefix")
+    String prefix;
+
+    @Inject("key=value~other")
+    String pair;
+
+    @Inject("report")
+    String report;
+}
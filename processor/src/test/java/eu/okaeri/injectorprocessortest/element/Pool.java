@@ -0,0 +1,15 @@
+package eu.okaeri.injectorprocessortest.element;
+
+import eu.okaeri.injector.annotation.PreDestroy;
+import lombok.Getter;
+
+@Getter
+public class Pool {
+
+    private boolean closed;
+
+    @PreDestroy
+    private void close(Config config) {
+        this.closed = true;
+    }
+}